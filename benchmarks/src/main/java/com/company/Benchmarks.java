@@ -0,0 +1,38 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+public class Benchmarks {
+    // main class of benchmarks.jar, usage: java -jar benchmarks/target/benchmarks.jar [JMH options]
+    // runs the benchmarks twice:
+    //      throughput in ops/s with allocation rate of gc profiler
+    //      sample time in us/op with percentiles
+    // JMH options (e.x: a benchmark name regex or -p grammar=small) are applied to both runs
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        // without a regex all the benchmarks are run
+        String include = options.getIncludes().isEmpty() ? ParserBenchmark.class.getSimpleName() : "";
+        new Runner(new OptionsBuilder()
+                .parent(options)
+                .include(include)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+        new Runner(new OptionsBuilder()
+                .parent(options)
+                .include(include)
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .build()).run();
+    }
+}
@@ -0,0 +1,190 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParserBenchmark {
+    // table construction and parse drivers on the grammars and tokens of the repository
+    // jmh State is written with its package, State of this package is a state of state machines
+    // fixtures are read from the directory in "fixtures" system property (default: working directory)
+    //      small: gram2.txt and tokens2.txt
+    //      large: gram4.txt (gram.txt with precedence declarations) and tokens4.txt (made by TokensGenerator)
+    //      LL: gram3.txt, the only LL(1) grammar, and tokens made in setup
+    // parsers are created in setup, so a parse op is only the parse, and setup checks that they accept the tokens
+    // parse and reparse benchmarks only take tables without conflicts, LR(0) tables of both grammars have conflicts
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class Fixture {
+        @Param({"small", "large"})
+        String grammar;
+
+        TableGenerator generator;
+        ArrayList<State> dfa0, dfa1, lalr1Dfa;
+        ParseTables tables;
+        ArrayList<Token> tokens;
+
+        @Setup
+        public void setup() throws IOException {
+            String dir = System.getProperty("fixtures", ".");
+            String grammarFile = grammar.equals("small") ? "gram2.txt" : "gram4.txt";
+            String tokensFile = grammar.equals("small") ? "tokens2.txt" : "tokens4.txt";
+
+            generator = new TableGenerator(new Grammar(Grammar.readRules(new File(dir, grammarFile).getPath())));
+            dfa0 = generator.generateDFA(0);
+            dfa1 = generator.generateDFA(1);
+            lalr1Dfa = generator.generateLALR(dfa0);
+            tables = generator.generate(false);
+            tokens = new ArrayList<>();
+            try (FileTokenSource source = new FileTokenSource(new File(dir, tokensFile).getPath())) {
+                Token token;
+                while ((token = source.next()) != null)
+                    tokens.add(token);
+            }
+        }
+    }
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class LRType {
+        @Param({ParseTables.LR0, ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1})
+        String type;
+    }
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class Input {
+        @Param({ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1})
+        String type;
+
+        LRParser parser;
+        ListTokenSource source;
+
+        @Setup
+        public void setup(Fixture fixture) {
+            if (fixture.tables.hasConflict(type))
+                throw new IllegalStateException(type + " table of " + fixture.grammar + " grammar has conflicts");
+            parser = fixture.tables.lrParser(type);
+            source = new ListTokenSource(fixture.tokens);
+            accepted(parser.parse(source.reset()), type);
+        }
+    }
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class LLInput {
+        LLParser parser;
+        ListTokenSource source;
+
+        @Setup
+        public void setup() throws IOException {
+            String dir = System.getProperty("fixtures", ".");
+            ParseTables tables = new TableGenerator(new Grammar(Grammar.readRules(new File(dir, "gram3.txt").getPath())))
+                    .generate(false);
+            if (tables.hasConflict(ParseTables.LL1))
+                throw new IllegalStateException("LL(1) table of gram3.txt has conflicts");
+            // id + id - id ... $
+            ArrayList<Token> tokens = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                if (i > 0)
+                    tokens.add(new Token(i % 2 == 0 ? "+" : "-"));
+                tokens.add(new Token("id", "x" + i));
+            }
+            tokens.add(new Token(Grammar.END));
+            parser = tables.llParser();
+            source = new ListTokenSource(tokens);
+            accepted(parser.parse(source.reset()), ParseTables.LL1);
+        }
+    }
+
+    private static void accepted(String result, String type) {
+        if (!result.equals("acc"))
+            throw new IllegalStateException(type + " parser doesn't accept the tokens of fixture: " + result);
+    }
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class Document {
+        @Param({ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1})
+        String type;
+
+        IncrementalParser parser;
+        int middle;                 // index of the token that is edited
+        ListTokenSource token;      // the same token again
+
+        @Setup
+        public void setup(Fixture fixture) {
+            if (fixture.tables.hasConflict(type))
+                throw new IllegalStateException(type + " table of " + fixture.grammar + " grammar has conflicts");
+            parser = fixture.tables.incrementalParser(type);
+            accepted(parser.parse(new ListTokenSource(fixture.tokens)), type);
+            middle = parser.tokenCount() / 2;
+            token = new ListTokenSource(fixture.tokens.subList(middle, middle + 1));
+            // an edit of an accepted document parses again from the edit, it isn't cut short by an earlier error
+            Metrics metrics = new Metrics();
+            accepted(parser.metrics(metrics).edit(middle, middle + 1, token.reset()), type);
+            if (metrics.getValues().getOrDefault("parse." + type + ".incremental.editShifts", 0L) == 0)
+                throw new IllegalStateException(type + " incremental parser doesn't parse the edited token again");
+            parser.metrics(Metrics.NONE);
+        }
+    }
+
+    @Benchmark
+    public ArrayList<State> generateDFA0(Fixture fixture) {
+        return fixture.generator.generateDFA(0);
+    }
+
+    @Benchmark
+    public ArrayList<State> generateDFA1(Fixture fixture) {
+        return fixture.generator.generateDFA(1);
+    }
+
+    @Benchmark
+    public ArrayList<State> generateLALR(Fixture fixture) {
+        return fixture.generator.generateLALR(fixture.dfa0);
+    }
+
+    @Benchmark
+    public String[][] createTable(Fixture fixture, LRType lr) {
+        ArrayList<State> dfa;
+        switch (lr.type) {
+            case ParseTables.LALR1:
+                dfa = fixture.lalr1Dfa;
+                break;
+            case ParseTables.LR1:
+                dfa = fixture.dfa1;
+                break;
+            default:
+                dfa = fixture.dfa0;
+        }
+        return fixture.generator.createTable(dfa, lr.type, new ArrayList<>(), new ArrayList<>());
+    }
+
+    @Benchmark
+    public int[][] createLLTable(Fixture fixture) {
+        return fixture.generator.createLLTable(new ArrayList<>());
+    }
+
+    @Benchmark
+    public String parse(Input input) {
+        return input.parser.parse(input.source.reset());
+    }
+
+    @Benchmark
+    public String reparse(Document document) {
+        // a token in the middle is typed again, like an editor that parses after every key
+        return document.parser.edit(document.middle, document.middle + 1, document.token.reset());
+    }
+
+    @Benchmark
+    public String parseLL(LLInput input) {
+        return input.parser.parse(input.source.reset());
+    }
+}
@@ -0,0 +1,217 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TokensGenerator {
+    // writes tokens4.txt: tokens of a random program of gram4.txt, lines of "type,lexeme" and "$" at the end
+    // usage: java -cp benchmarks/target/benchmarks.jar com.company.TokensGenerator [file] [seed]
+    // the same seed always makes the same file, tokens4.txt is made with the defaults (tokens4.txt, 11)
+    //      120 declarations, a quarter of them variables and the others functions with 1-3 parameters or void
+    //      statements: assignments (of array items too), IF with and without ELSE, WHILE, FOR, blocks and RETURN,
+    //      nested up to depth 3
+    //      expressions: every binary operator, unary "-" and "!", calls, array items and parentheses
+    // gram4.txt has "–" (not "-") as the binary minus, so both are made
+    private static final String[] NAMES = {"a", "b", "c", "i", "n", "sum", "count", "x", "y", "total"};
+    private static final String[] OPERATORS = {"+", "–", "*", "/", "%", "<", ">", "LE", "GE", "EQ", "NE", "AND", "OR"};
+    private static final String[] TYPES = {"int", "float", "bool"};
+
+    private final Random random;
+    private final ArrayList<String> lines = new ArrayList<>();
+
+    public TokensGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "tokens4.txt";
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 11;
+        ArrayList<String> lines = new TokensGenerator(seed).program(120);
+        Files.write(Paths.get(file), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        System.out.println(lines.size() + " tokens written to " + file);
+    }
+
+    /**
+     * @return lines of tokens of (@param)declarations declarations and "$"
+     */
+    public ArrayList<String> program(int declarations) {
+        lines.clear();
+        for (int f = 0; f < declarations; f++) {
+            if (random.nextInt(4) == 0) {
+                type();
+                ident();
+                token(";");
+                continue;
+            }
+            token(random.nextInt(4) == 0 ? "void" : TYPES[random.nextInt(TYPES.length)]);
+            token("ident", "f" + f);
+            token("(");
+            if (random.nextInt(3) == 0) {
+                token("void");
+            } else {
+                for (int i = random.nextInt(3); i >= 0; i--) {
+                    type();
+                    ident();
+                    if (i > 0)
+                        token(",");
+                }
+            }
+            token(")");
+            block(1);
+        }
+        token(Grammar.END);
+        return lines;
+    }
+
+    private void block(int depth) {
+        token("{");
+        for (int i = random.nextInt(3); i > 0; i--) {
+            type();
+            ident();
+            if (random.nextInt(3) == 0) {
+                token("[");
+                token("]");
+            }
+            token(";");
+        }
+        for (int i = 1 + random.nextInt(3); i > 0; i--)
+            statement(depth);
+        if (depth == 1 && random.nextBoolean()) {
+            token("RETURN");
+            expression(0);
+            token(";");
+        }
+        token("}");
+    }
+
+    private void statement(int depth) {
+        switch (random.nextInt(depth < 3 ? 7 : 2)) {
+            case 0:
+                ident();
+                token("=");
+                expression(0);
+                token(";");
+                break;
+            case 1:
+                ident();
+                token("[");
+                expression(0);
+                token("]");
+                token("=");
+                expression(0);
+                token(";");
+                break;
+            case 2:
+            case 3:
+                token("IF");
+                parenthesized();
+                statement(depth + 1);
+                if (random.nextBoolean()) {
+                    token("ELSE");
+                    statement(depth + 1);
+                }
+                break;
+            case 4:
+                token("WHILE");
+                parenthesized();
+                block(depth + 1);
+                break;
+            case 5:
+                // FOR ( i = 0 ; i < n ; i = i + 1 )
+                token("FOR");
+                token("(");
+                ident();
+                token("=");
+                token("INT_LIT", "0");
+                token(";");
+                ident();
+                token("<");
+                token("ident", "n");
+                token(";");
+                ident();
+                token("=");
+                ident();
+                token("+");
+                token("INT_LIT", "1");
+                token(")");
+                statement(depth + 1);
+                break;
+            default:
+                block(depth + 1);
+        }
+    }
+
+    private void parenthesized() {
+        token("(");
+        expression(0);
+        token(")");
+    }
+
+    private void expression(int depth) {
+        primary(depth);
+        for (int i = random.nextInt(depth < 2 ? 3 : 1); i > 0; i--) {
+            token(OPERATORS[random.nextInt(OPERATORS.length)]);
+            primary(depth + 1);
+        }
+    }
+
+    private void primary(int depth) {
+        switch (random.nextInt(depth < 3 ? 8 : 3)) {
+            case 0:
+                ident();
+                break;
+            case 1:
+                token("INT_LIT", String.valueOf(random.nextInt(100)));
+                break;
+            case 2:
+                token("FLOAT_LIT", random.nextInt(10) + "." + random.nextInt(10));
+                break;
+            case 3:
+                token("(");
+                expression(depth + 1);
+                token(")");
+                break;
+            case 4:
+                ident();
+                token("[");
+                expression(depth + 1);
+                token("]");
+                break;
+            case 5:
+                ident();
+                token("(");
+                expression(depth + 1);
+                token(",");
+                expression(depth + 1);
+                token(")");
+                break;
+            case 6:
+                token("-");
+                primary(depth + 1);
+                break;
+            default:
+                token("!");
+                primary(depth + 1);
+        }
+    }
+
+    private void type() {
+        token(TYPES[random.nextInt(TYPES.length)]);
+    }
+
+    private void ident() {
+        token("ident", NAMES[random.nextInt(NAMES.length)]);
+    }
+
+    private void token(String type) {
+        token(type, type);
+    }
+
+    private void token(String type, String lexeme) {
+        lines.add(type + "," + lexeme);
+    }
+}
@@ -0,0 +1,94 @@
+package com.company;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+
+public class AsyncTrace implements ParseTrace, Closeable {
+    // passes steps to a BinaryTrace that writes them on its own thread, so writing a trace file overlaps parsing
+    // a step is copied into a RingBuffer record (kind, symbol, production, state, token), stacks aren't copied,
+    // they are built again by BinaryTrace.replay() like for any trace file
+    // parser waits when the writer is behind by a whole buffer
+    // if target fails (an exception or an Error) the writer still takes records, so parser never waits for it,
+    // and parser gets the failure at its next step or at close()
+    private static final int CAPACITY = 1 << 14;        // records
+    private static final int BATCH = 256;
+    private static final int CLOSE = -1;                // kind of the last record
+
+    private final BinaryTrace target;
+    private final Grammar grammar;
+    private final RingBuffer ring;
+    private final int[] data;
+    private final Thread writer;
+    private volatile Throwable failure;
+
+    public AsyncTrace(BinaryTrace target, Grammar grammar) {
+        this.target = target;
+        this.grammar = grammar;
+        ring = new RingBuffer(CAPACITY, 5, BATCH);
+        data = ring.data();
+        writer = new Thread(this::write, "trace writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void step(int kind, int symbol, int production, Token token, int[] states, int[] symbols, int top) {
+        put(kind, symbol, production, states == null ? -1 : states[top], BinaryTrace.tokenId(grammar, token));
+    }
+
+    private void put(int kind, int symbol, int production, int state, int token) {
+        if (failure != null)
+            throw rethrow(failure);
+        int at = ring.claim();
+        data[at] = kind;
+        data[at + 1] = symbol;
+        data[at + 2] = production;
+        data[at + 3] = state;
+        data[at + 4] = token;
+        ring.commit();
+    }
+
+    private void write() {
+        while (true) {
+            int at = ring.next();
+            if (data[at] == CLOSE)
+                return;
+            if (failure == null) {
+                try {
+                    target.write(data[at], data[at + 1], data[at + 2], data[at + 3], data[at + 4]);
+                } catch (Throwable e) {
+                    // records are still taken, so parser doesn't wait for a writer that has failed
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return (@param)e as an unchecked exception of parser's thread, RuntimeException and Error are thrown as they are
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new IllegalStateException("trace writer failed", e);
+    }
+
+    /**
+     * waits until every step is written, target isn't closed
+     */
+    @Override
+    public void close() throws IOException {
+        put(CLOSE, 0, 0, 0, 0);
+        ring.flush();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null)
+            throw rethrow(failure);
+    }
+}
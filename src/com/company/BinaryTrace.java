@@ -0,0 +1,129 @@
+package com.company;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+
+public class BinaryTrace implements ParseTrace, Closeable {
+    // compact log of steps, every step is a fixed size record of big-endian numbers:
+    //      step (int), kind (byte), symbol (int), production (int), state (int), token (int)
+    // step is counted from START of each parse, state is current LR state or -1 for LL
+    // token is id of token, -1 if it's not in grammar or -2 if input is finished
+    // stacks aren't written, replay() builds them again from the steps and grammar
+    private static final int MAGIC = 0x54524345;        // "TRCE"
+
+    private final DataOutputStream out;
+    private final Grammar grammar;
+    private int step;
+
+    public BinaryTrace(OutputStream out, Grammar grammar) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.grammar = grammar;
+        this.out.writeInt(MAGIC);
+    }
+
+    @Override
+    public void step(int kind, int symbol, int production, Token token, int[] states, int[] symbols, int top) {
+        write(kind, symbol, production, states == null ? -1 : states[top], tokenId(grammar, token));
+    }
+
+    /**
+     * @return token as it's written in a record
+     */
+    static int tokenId(Grammar grammar, Token token) {
+        return token == null ? -2 : grammar.id(token.token);
+    }
+
+    /**
+     * writes the record of a step, AsyncTrace calls it from its own thread
+     */
+    void write(int kind, int symbol, int production, int state, int token) {
+        if (kind == START)
+            step = 0;
+        try {
+            out.writeInt(step++);
+            out.writeByte(kind);
+            out.writeInt(symbol);
+            out.writeInt(production);
+            out.writeInt(state);
+            out.writeInt(token);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * passes the steps of a log to (@param)trace with the stacks that parser had
+     * tokens that weren't in grammar are replayed as "?"
+     */
+    public static void replay(InputStream in, Grammar grammar, ParseTrace trace) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC)
+            throw new IOException("not a trace file");
+        int[] states = new int[64], symbols = new int[64];
+        int top = -1;
+        boolean lr = true;
+        while (true) {
+            int kind, symbol, production, state, tokenId;
+            try {
+                data.readInt();
+                kind = data.readByte();
+                symbol = data.readInt();
+                production = data.readInt();
+                state = data.readInt();
+                tokenId = data.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            if (top + grammar.symbolCount() >= states.length) {
+                states = Arrays.copyOf(states, states.length * 2 + grammar.symbolCount());
+                symbols = Arrays.copyOf(symbols, states.length);
+            }
+            Token token = tokenId == -2 ? null : new Token(tokenId == -1 ? "?" : grammar.names[tokenId]);
+            if (kind == START) {
+                // same stacks that parsers start with
+                lr = state != -1;
+                if (lr) {
+                    top = 0;
+                    states[0] = 0;
+                    symbols[0] = grammar.endMarker;
+                } else {
+                    top = 1;
+                    symbols[0] = grammar.endMarker;
+                    symbols[1] = grammar.startSymbol;
+                }
+            } else if (kind == SHIFT) {
+                top++;
+                states[top] = state;
+                symbols[top] = symbol;
+            } else if (kind == REDUCE) {
+                top -= grammar.rhs[production].length - 1;
+                states[top] = state;
+                symbols[top] = symbol;
+            }
+            trace.step(kind, symbol, production, token, lr ? states : null, symbols, top);
+            if (kind == PREDICT) {
+                top--;
+                int[] right = grammar.rhs[production];
+                for (int i = right.length - 1; i >= 0; i--)
+                    symbols[++top] = right[i];
+            } else if (kind == MATCH) {
+                top--;
+            }
+        }
+    }
+}
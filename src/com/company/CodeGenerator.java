@@ -0,0 +1,445 @@
+package com.company;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+
+public class CodeGenerator {
+    // writes a parse table as the source of a Java class that needs neither the grammar nor this package
+    //      LR tables become a direct coded parser: a method for each state that switches on the token and does
+    //      its own shift, reduce (pops a fixed number of states and calls GOTO of its nonTerminal) or accept,
+    //      a method for each nonTerminal that switches on the state for its GOTO
+    //      it's still an unrolled table interpreter: an explicit stack and a loop that dispatches on the top state,
+    //      what's gone is decoding actions and a switch of reductions. Dispatch is split in blocks of STATE_BLOCK
+    //      states, so it isn't one method that grows past the 64KB limit of the JVM with the table
+    //      LL(1) table becomes a recursive descent parser: a method for each nonTerminal that switches on the token
+    // the class can be compiled in process with compile() or written in a directory with write()
+    //
+    // every generated class has the same static methods:
+    //      int terminal(String name)               terminal id of a token type or -1
+    //      String parse(int[] tokens, int count)   "acc" or "error", tokens are terminal ids and the last one is "$"
+    //      String parse(List<String> types)        the same for token types
+    //      String parse(int[] tokens, int count, IntConsumer reduces)
+    //                                              the same, every reduced production is passed to reduces in the
+    //                                              order LRParser and LLParser give it to ParseListener.onReduce
+    private static final int STATE_BLOCK = 256;    // states in a dispatch method of an LR parser
+
+    /**
+     * @param type can be 'lr0', 'slr1', 'lalr1', 'lr1', its table shouldn't have any conflict
+     */
+    public static String lrSource(ParseTables tables, String type, String className) {
+        Grammar grammar = tables.grammar;
+        ParseTable table = tables.lrTables.get(type);
+        StringBuilder out = new StringBuilder();
+        header(out, grammar, type, className);
+
+        out.append("    private static final int FAILED = -1, ACCEPTED = -2;    // results of a state, others are the next state\n");
+        out.append("    private final int[] tokens;\n");
+        out.append("    private final int count;\n");
+        out.append("    private final java.util.function.IntConsumer reduces;     // null if nobody asks for them\n");
+        out.append("    private int position;\n");
+        out.append("    private int t;                          // current token or -1 at the end\n");
+        out.append("    private int[] stack = new int[64];      // state numbers\n");
+        out.append("    private int top;\n");
+        out.append("\n");
+        constructor(out, className);
+        out.append("    /**\n");
+        out.append("     * @param tokens terminal ids, the last one should be \"$\"\n");
+        out.append("     * @param reduces gets every reduced production or null\n");
+        out.append("     * @return \"acc\" if tokens are accepted or \"error\"\n");
+        out.append("     */\n");
+        out.append("    public static String parse(int[] tokens, int count, java.util.function.IntConsumer reduces) {\n");
+        out.append("        if (count == 0)\n");
+        out.append("            return \"error\";\n");
+        out.append("        ").append(className).append(" parser = new ").append(className).append("(tokens, count, reduces);\n");
+        out.append("        int state = 0;\n");
+        out.append("        while (state >= 0)\n");
+        out.append("            state = parser.run(state);\n");
+        out.append("        return state == ACCEPTED ? \"acc\" : \"error\";\n");
+        out.append("    }\n");
+
+        // dispatch on the state on top of the stack, a method for each block of states keeps every method small
+        int blocks = (table.stateCount + STATE_BLOCK - 1) / STATE_BLOCK;
+        out.append("\n    private int run(int state) {\n");
+        out.append("        switch (state / ").append(STATE_BLOCK).append(") {\n");
+        for (int block = 0; block < blocks; block++)
+            out.append("            case ").append(block).append(": return run").append(block).append("(state);\n");
+        out.append("            default: return FAILED;\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        for (int block = 0; block < blocks; block++) {
+            out.append("\n    private int run").append(block).append("(int state) {\n");
+            out.append("        switch (state) {\n");
+            for (int state = block * STATE_BLOCK; state < Math.min((block + 1) * STATE_BLOCK, table.stateCount); state++)
+                out.append("            case ").append(state).append(": return state").append(state).append("();\n");
+            out.append("            default: return FAILED;\n");
+            out.append("        }\n");
+            out.append("    }\n");
+        }
+
+        // like LRParser, it fails when tokens are finished before it's accepted, so reductions on what isn't there
+        // aren't reported
+        out.append("\n    private int shift(int state) {\n");
+        out.append("        push(state);\n");
+        out.append("        if (++position == count)\n");
+        out.append("            return FAILED;\n");
+        out.append("        t = tokens[position];\n");
+        out.append("        return state;\n");
+        out.append("    }\n");
+        out.append("\n    private int push(int state) {\n");
+        out.append("        if (++top == stack.length)\n");
+        out.append("            stack = java.util.Arrays.copyOf(stack, top * 2);\n");
+        out.append("        stack[top] = state;\n");
+        out.append("        return state;\n");
+        out.append("    }\n");
+        out.append("\n    // state is the GOTO after production, ACCEPTED, or FAILED if there isn't any GOTO\n");
+        out.append("    private int reduce(int production, int state) {\n");
+        out.append("        if (state == FAILED)\n");
+        out.append("            return FAILED;\n");
+        out.append("        if (reduces != null)\n");
+        out.append("            reduces.accept(production);\n");
+        out.append("        return state == ACCEPTED ? ACCEPTED : push(state);\n");
+        out.append("    }\n");
+
+        // a method for each state does its own actions, terminals with the same action share a case
+        for (int state = 0; state < table.stateCount; state++) {
+            out.append("\n    private int state").append(state).append("() {\n");
+            LinkedHashMap<Integer, StringBuilder> cases = new LinkedHashMap<>();
+            for (int t = 0; t < grammar.terminalCount; t++) {
+                int action = table.action(state, t);
+                if (action != table.defaultAction[state])
+                    cases.computeIfAbsent(action, k -> new StringBuilder()).append(caseLabel(grammar, t));
+            }
+            if (cases.isEmpty()) {
+                // it doesn't look at the token
+                action(out, grammar, table.defaultAction[state], "        ");
+            } else {
+                out.append("        switch (t) {\n");
+                for (Map.Entry<Integer, StringBuilder> entry : cases.entrySet()) {
+                    out.append(entry.getValue());
+                    action(out, grammar, entry.getKey(), "                ");
+                }
+                out.append("            default:\n");
+                action(out, grammar, table.defaultAction[state], "                ");
+                out.append("        }\n");
+            }
+            out.append("    }\n");
+        }
+
+        // GOTO part, -1 is FAILED
+        for (int n = grammar.terminalCount; n < grammar.symbolCount(); n++) {
+            out.append("\n    // GOTO of ").append(comment(grammar.names[n])).append("\n");
+            out.append("    private static int goto").append(n).append("(int state) {\n");
+            out.append("        switch (state) {\n");
+            for (int state = 0; state < table.stateCount; state++) {
+                int next = table.goTo(state, n);
+                if (next != -1)
+                    out.append("            case ").append(state).append(": return ").append(next).append(";\n");
+            }
+            out.append("            default: return -1;\n");
+            out.append("        }\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * code of a state for (@param)action of its table, it returns the next state, ACCEPTED or FAILED
+     */
+    private static void action(StringBuilder out, Grammar grammar, int action, String indent) {
+        int value = ParseTable.value(action);
+        switch (ParseTable.kind(action)) {
+            case ParseTable.SHIFT:
+                out.append(indent).append("return shift(").append(value).append(");\n");
+                break;
+            case ParseTable.REDUCE:
+            case ParseTable.ACCEPT:
+                out.append(indent).append("// ").append(comment(grammar.rules[value])).append("\n");
+                if (grammar.rhs[value].length > 0)
+                    out.append(indent).append("top -= ").append(grammar.rhs[value].length).append(";\n");
+                // ACCEPT is a reduce of start symbol, it's accepted only when nothing else is on the stack
+                if (ParseTable.kind(action) == ParseTable.ACCEPT)
+                    out.append(indent).append("if (top == 0)\n").append(indent).append("    return reduce(")
+                            .append(value).append(", ACCEPTED);\n");
+                out.append(indent).append("return reduce(").append(value).append(", goto").append(grammar.lhs[value])
+                        .append("(stack[top]));\n");
+                break;
+            default:
+                out.append(indent).append("return FAILED;\n");
+        }
+    }
+
+    /**
+     * LL(1) table shouldn't have any conflict
+     */
+    public static String llSource(ParseTables tables, String className) {
+        Grammar grammar = tables.grammar;
+        StringBuilder out = new StringBuilder();
+        header(out, grammar, ParseTables.LL1, className);
+
+        out.append("    private final int[] tokens;\n");
+        out.append("    private final int count;\n");
+        out.append("    private final java.util.function.IntConsumer reduces;     // null if nobody asks for them\n");
+        out.append("    private int position;\n");
+        out.append("    private int t;                          // current token or -1 at the end\n");
+        out.append("    private int[] pending = new int[16];    // productions of loops that are reduced when the loop ends\n");
+        out.append("    private int pendingTop;\n");
+        out.append("\n");
+        constructor(out, className);
+        out.append("    /**\n");
+        out.append("     * @param tokens terminal ids, the last one should be \"$\"\n");
+        out.append("     * @param reduces gets every reduced production or null\n");
+        out.append("     * @return \"acc\" if tokens are accepted or \"error\"\n");
+        out.append("     */\n");
+        out.append("    public static String parse(int[] tokens, int count, java.util.function.IntConsumer reduces) {\n");
+        out.append("        ").append(className).append(" parser = new ").append(className).append("(tokens, count, reduces);\n");
+        out.append("        return parser.parse").append(grammar.startSymbol).append("() && parser.match(")
+                .append(grammar.endMarker).append(") ? \"acc\" : \"error\";\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    private boolean match(int terminal) {\n");
+        out.append("        if (t != terminal)\n");
+        out.append("            return false;\n");
+        out.append("        t = ++position < count ? tokens[position] : -1;\n");
+        out.append("        return true;\n");
+        out.append("    }\n");
+        out.append("\n    // a production is reduced when its right hand is done, then the ones a loop left from (@param)base\n");
+        out.append("    private boolean reduce(int production, int base) {\n");
+        out.append("        if (reduces != null) {\n");
+        out.append("            reduces.accept(production);\n");
+        out.append("            while (pendingTop > base)\n");
+        out.append("                reduces.accept(pending[--pendingTop]);\n");
+        out.append("        }\n");
+        out.append("        return true;\n");
+        out.append("    }\n");
+        out.append("\n    private void pend(int production) {\n");
+        out.append("        if (reduces == null)\n");
+        out.append("            return;\n");
+        out.append("        if (pendingTop == pending.length)\n");
+        out.append("            pending = java.util.Arrays.copyOf(pending, pendingTop * 2);\n");
+        out.append("        pending[pendingTop++] = production;\n");
+        out.append("    }\n");
+
+        for (int n = grammar.terminalCount; n < grammar.symbolCount(); n++) {
+            int[] row = tables.llTable[n - grammar.terminalCount];
+            // a production that ends with the same nonTerminal continues the loop instead of a call
+            // e.x: E'-> + T E' parses "+ T" and then starts E' again, so long lists don't grow the call stack
+            boolean loop = false;
+            for (int p : grammar.productionsOf[n - grammar.terminalCount])
+                loop |= endsWith(grammar.rhs[p], n);
+            out.append("\n    // ").append(comment(grammar.names[n])).append("\n");
+            out.append("    private boolean parse").append(n).append("() {\n");
+            String indent = loop ? "            " : "        ";
+            if (loop) {
+                // a production that continues the loop is reduced after the inner ones, when the loop ends
+                out.append("        int base = pendingTop;\n");
+                out.append("        while (true) {\n");
+            }
+            out.append(indent).append("switch (t) {\n");
+            for (int p : grammar.productionsOf[n - grammar.terminalCount]) {
+                StringBuilder labels = new StringBuilder();
+                for (int t = 0; t < grammar.terminalCount; t++)
+                    if (row[t] == p)
+                        labels.append(indent).append("    case ").append(t).append(":\n");
+                if (labels.length() == 0)
+                    continue;
+                out.append(labels);
+                out.append(indent).append("        // ").append(comment(grammar.rules[p])).append("\n");
+                int[] right = grammar.rhs[p];
+                boolean tail = endsWith(right, n);
+                for (int i = 0; i < right.length - (tail ? 1 : 0); i++) {
+                    String call = grammar.isTerminal(right[i]) ? "match(" + right[i] + ")" : "parse" + right[i] + "()";
+                    out.append(indent).append("        if (!").append(call).append(")\n");
+                    out.append(indent).append("            return false;\n");
+                }
+                if (tail)
+                    out.append(indent).append("        pend(").append(p).append(");\n")
+                            .append(indent).append("        continue;\n");
+                else
+                    out.append(indent).append("        return reduce(").append(p).append(loop ? ", base" : ", pendingTop")
+                            .append(");\n");
+            }
+            out.append(indent).append("    default:\n");
+            out.append(indent).append("        return false;\n");
+            out.append(indent).append("}\n");
+            if (loop)
+                out.append("        }\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static boolean endsWith(int[] right, int symbol) {
+        return right.length > 0 && right[right.length - 1] == symbol;
+    }
+
+    /**
+     * class declaration, symbol names and methods that don't depend on the kind of parser
+     */
+    private static void header(StringBuilder out, Grammar grammar, String type, String className) {
+        out.append("// generated from ").append(type).append(" table of grammar:\n");
+        for (String rule : grammar.rules)
+            out.append("//      ").append(comment(rule)).append("\n");
+        out.append("public final class ").append(className).append(" {\n");
+        out.append("    // symbol id -> symbol name, terminals are first and \"$\" is the last terminal\n");
+        out.append("    public static final String[] SYMBOLS = {");
+        for (int i = 0; i < grammar.symbolCount(); i++)
+            out.append(i % 8 == 0 ? "\n            " : " ").append(literal(grammar.names[i])).append(",");
+        out.append("\n    };\n");
+        out.append("    public static final int TERMINAL_COUNT = ").append(grammar.terminalCount).append(";\n");
+        out.append("\n");
+        out.append("    /**\n");
+        out.append("     * @return terminal id of a token type or -1 if it isn't a terminal\n");
+        out.append("     */\n");
+        out.append("    public static int terminal(String name) {\n");
+        out.append("        switch (name) {\n");
+        for (int t = 0; t < grammar.terminalCount; t++)
+            out.append("            case ").append(literal(grammar.names[t])).append(": return ").append(t).append(";\n");
+        out.append("            default: return -1;\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    /**\n");
+        out.append("     * @param tokens terminal ids, the last one should be \"$\"\n");
+        out.append("     * @return \"acc\" if tokens are accepted or \"error\"\n");
+        out.append("     */\n");
+        out.append("    public static String parse(int[] tokens, int count) {\n");
+        out.append("        return parse(tokens, count, null);\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    /**\n");
+        out.append("     * @param types types of tokens, the last one should be \"$\"\n");
+        out.append("     */\n");
+        out.append("    public static String parse(java.util.List<String> types) {\n");
+        out.append("        int[] tokens = new int[types.size()];\n");
+        out.append("        for (int i = 0; i < tokens.length; i++)\n");
+        out.append("            tokens[i] = terminal(types.get(i));\n");
+        out.append("        return parse(tokens, tokens.length);\n");
+        out.append("    }\n");
+        out.append("\n");
+    }
+
+    private static void constructor(StringBuilder out, String className) {
+        out.append("    private ").append(className).append("(int[] tokens, int count, java.util.function.IntConsumer reduces) {\n");
+        out.append("        this.tokens = tokens;\n");
+        out.append("        this.count = count;\n");
+        out.append("        this.reduces = reduces;\n");
+        out.append("        t = count > 0 ? tokens[0] : -1;\n");
+        out.append("    }\n");
+        out.append("\n");
+    }
+
+    private static String caseLabel(Grammar grammar, int terminal) {
+        return "            case " + terminal + ":      // " + comment(grammar.names[terminal]) + "\n";
+    }
+
+    /**
+     * @return (@param)s as a Java string literal, non ASCII characters are escaped
+     */
+    private static String literal(String s) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\')
+                builder.append('\\').append(c);
+            else if (c < 0x20 || c > 0x7e)
+                builder.append(String.format("\\u%04x", (int) c));
+            else
+                builder.append(c);
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * @return (@param)s without anything that may end a line comment or make a unicode escape in it
+     */
+    private static String comment(String s) {
+        StringBuilder builder = new StringBuilder();
+        for (char c : s.toCharArray())
+            builder.append(c < 0x20 || c > 0x7e || c == '\\' ? '?' : c);
+        return builder.toString();
+    }
+
+    /**
+     * writes (@param)source in (@param)directory as (@param)className.java
+     * @return path of the file
+     */
+    public static Path write(String directory, String className, String source) throws IOException {
+        Path path = Paths.get(directory, className + ".java");
+        Files.createDirectories(path.getParent());
+        Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    /**
+     * compiles (@param)source in memory and loads it
+     * @throws IllegalStateException if there isn't a compiler (it's run with a JRE) or source doesn't compile
+     */
+    public static Class<?> compile(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("there isn't any Java compiler, a JDK is needed to compile parsers");
+        HashMap<String, ByteArrayOutputStream> classes = new HashMap<>();
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+                compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind
+                    , FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classes.put(name, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        };
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("mem:///" + className + ".java")
+                , JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        StringWriter errors = new StringWriter();
+        boolean compiled = compiler.getTask(errors, fileManager, null, null, null, Collections.singletonList(file)).call();
+        if (!compiled)
+            throw new IllegalStateException("generated parser doesn't compile:\n" + errors);
+
+        ClassLoader loader = new ClassLoader(CodeGenerator.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                ByteArrayOutputStream bytes = classes.get(name);
+                if (bytes == null)
+                    throw new ClassNotFoundException(name);
+                byte[] b = bytes.toByteArray();
+                return defineClass(name, b, 0, b.length);
+            }
+        };
+        try {
+            return loader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
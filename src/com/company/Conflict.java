@@ -2,6 +2,7 @@ package com.company;
 
 public class Conflict {
     public String  row , column,conflict1, conflict2;
+    public String resolution;       // the action that precedence chose or null if it's not resolved
 
     public Conflict(String row, String column, String conflict1, String conflict2) {
         this.row = row;
@@ -10,10 +11,19 @@ public class Conflict {
         this.conflict2 = conflict2;
     }
 
+    public Conflict(String row, String column, String conflict1, String conflict2, String resolution) {
+        this(row, column, conflict1, conflict2);
+        this.resolution = resolution;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        builder.append(String.format("at state %s on %s, %s/%s happened.", row, column , conflict1, conflict2));
+        if (resolution != null)
+            builder.append(String.format("at state %s on %s, %s/%s is resolved as %s.", row, column, conflict1, conflict2
+                    , resolution.equals(ParseTable.EXPLICIT_ERROR) ? "error" : resolution));
+        else
+            builder.append(String.format("at state %s on %s, %s/%s happened.", row, column , conflict1, conflict2));
         return builder.toString();
     }
 }
@@ -0,0 +1,97 @@
+package com.company;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+public class FileTokenSource implements TokenSource, Closeable {
+    // reads tokens from a file with one token in each line, like tokens1.txt ("TYPE,lexeme") or tokens2.txt ("TYPE")
+    // file is read through a fixed size buffer, so memory doesn't depend on size of file
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private byte[] line;                // bytes of current line
+    private int lineLength;
+    private Token peeked;
+    private boolean finished;
+
+    public FileTokenSource(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+        line = new byte[256];
+    }
+
+    @Override
+    public Token next() {
+        Token token = peek();
+        peeked = null;
+        return token;
+    }
+
+    @Override
+    public Token peek() {
+        if (peeked == null && !finished) {
+            try {
+                peeked = readToken();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (peeked == null) {
+                finished = true;
+                close();
+            }
+        }
+        return peeked;
+    }
+
+    /**
+     * @return token of next non-empty line or null at end of file
+     */
+    private Token readToken() throws IOException {
+        while (true) {
+            lineLength = 0;
+            boolean endOfFile = true;
+            while (buffer.hasRemaining() || fill()) {
+                endOfFile = false;
+                byte b = buffer.get();
+                if (b == '\n')
+                    break;
+                if (b != '\r') {
+                    if (lineLength == line.length)
+                        line = Arrays.copyOf(line, lineLength * 2);
+                    line[lineLength++] = b;
+                }
+            }
+            if (endOfFile && lineLength == 0)
+                return null;
+            String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+            if (!text.trim().isEmpty())
+                return Token.parse(text);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int read = channel.read(buffer);
+        buffer.flip();
+        return read > 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
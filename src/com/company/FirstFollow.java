@@ -0,0 +1,129 @@
+package com.company;
+
+import java.util.BitSet;
+
+
+public class FirstFollow {
+    // first, follow and nullable sets of every symbol in grammar
+    // all of them are calculated once by iterating over productions until nothing changes,
+    // so mutually recursive nonTerminals get their complete sets
+    // sets are BitSets of terminal ids
+    final Grammar grammar;
+    final BitSet nullable;          // nonTerminal ids that can derive epsilon
+    final BitSet[] first;           // symbol id -> first set (for a terminal it's only itself)
+    final BitSet[] follow;          // symbol id -> follow set (empty for terminals)
+
+    public FirstFollow(Grammar grammar) {
+        this.grammar = grammar;
+        nullable = new BitSet(grammar.symbolCount());
+        first = new BitSet[grammar.symbolCount()];
+        follow = new BitSet[grammar.symbolCount()];
+        for (int i = 0; i < grammar.symbolCount(); i++) {
+            first[i] = new BitSet(grammar.terminalCount);
+            follow[i] = new BitSet(grammar.terminalCount);
+            if (grammar.isTerminal(i))
+                first[i].set(i);
+        }
+        calculateNullable();
+        calculateFirst();
+        calculateFollow();
+    }
+
+    private void calculateNullable() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < grammar.productionCount(); p++) {
+                if (!nullable.get(grammar.lhs[p]) && isNullable(grammar.rhs[p], 0)) {
+                    nullable.set(grammar.lhs[p]);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private void calculateFirst() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < grammar.productionCount(); p++) {
+                // e.x: A->BCd and B is nullable, first(A) += first(B) + first(C)
+                BitSet set = first[grammar.lhs[p]];
+                for (int symb : grammar.rhs[p]) {
+                    changed |= or(set, first[symb]);
+                    if (!nullable.get(symb))
+                        break;
+                }
+            }
+        }
+    }
+
+    private void calculateFollow() {
+        follow[grammar.startSymbol].set(grammar.endMarker);
+        BitSet trailer = new BitSet(grammar.terminalCount);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < grammar.productionCount(); p++) {
+                // walk right hand from right to left
+                // trailer is everything that can come after the current symbol
+                // e.x: A->aBFc, follow(B) += first(F) and if F is nullable follow(B) += 'c'
+                int[] right = grammar.rhs[p];
+                trailer.clear();
+                trailer.or(follow[grammar.lhs[p]]);
+                for (int i = right.length - 1; i >= 0; i--) {
+                    int symb = right[i];
+                    if (!grammar.isTerminal(symb))
+                        changed |= or(follow[symb], trailer);
+                    if (!nullable.get(symb))
+                        trailer.clear();
+                    trailer.or(first[symb]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if all symbols from index (@param)from to the end can derive epsilon
+     */
+    boolean isNullable(int[] symbols, int from) {
+        for (int i = from; i < symbols.length; i++)
+            if (!nullable.get(symbols[i]))
+                return false;
+        return true;
+    }
+
+    /**
+     * adds first set of symbols from index (@param)from to the end into (@param)set
+     * @return true if all of those symbols are nullable
+     */
+    boolean firstOf(int[] symbols, int from, BitSet set) {
+        for (int i = from; i < symbols.length; i++) {
+            set.or(first[symbols[i]]);
+            if (!nullable.get(symbols[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return set in the same format as before e.x: [a, b, #]
+     */
+    String toString(BitSet set, boolean withEpsilon) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int t = set.nextSetBit(0); t >= 0; t = set.nextSetBit(t + 1)) {
+            if (builder.length() > 1)
+                builder.append(", ");
+            builder.append(grammar.names[t]);
+        }
+        if (withEpsilon)
+            builder.append(builder.length() > 1 ? ", " : "").append(Grammar.EPSILON);
+        return builder.append("]").toString();
+    }
+
+    private static boolean or(BitSet toSet, BitSet fromSet) {
+        int before = toSet.cardinality();
+        toSet.or(fromSet);
+        return toSet.cardinality() != before;
+    }
+}
@@ -0,0 +1,165 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+
+public class ForestNode {
+    // a node of the shared packed parse forest (SPPF) that GLRParser builds
+    // there is a single node for each (symbol, start, end), so a subtree is shared by every tree that has it
+    // a nonTerminal node has a packed alternative for every way it's derived: a production and its children
+    // terminal nodes and nodes that are derived in only one way have at most one alternative
+    //      e.x: E-> E + E on "a + a + a" has a node (E, 0, 5) with two alternatives
+    private static final long IN_PROGRESS = -1;
+
+    final int symbol;
+    final int start;                // index of its first token
+    final int end;                  // index after its last token, it's equal to start for epsilon
+    // the first alternative is kept in fields, most nodes only have that one
+    private int firstProduction;
+    private ForestNode[] firstChildren;
+    private int[] productions;              // the other alternatives
+    private ForestNode[][] children;
+    private int alternativeCount;
+    private HashSet<Alternative> index;     // all alternatives when there are many of them, so add() doesn't search them
+
+    private static final int INDEX_THRESHOLD = 8;
+
+    ForestNode(int symbol, int start, int end) {
+        this.symbol = symbol;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * adds an alternative unless it already has it, different stacks may reduce the same children
+     * when they only differ in states (e.x: after a conflict two stacks get E in different states)
+     */
+    void add(int production, ForestNode[] nodes) {
+        if (alternativeCount == 0) {
+            firstProduction = production;
+            firstChildren = nodes;
+            alternativeCount = 1;
+            return;
+        }
+        if (index != null) {
+            if (!index.add(new Alternative(production, nodes)))
+                return;
+        } else {
+            for (int a = 0; a < alternativeCount; a++)
+                if (production(a) == production && sameNodes(children(a), nodes))
+                    return;
+            if (alternativeCount == INDEX_THRESHOLD) {
+                index = new HashSet<>();
+                for (int a = 0; a < alternativeCount; a++)
+                    index.add(new Alternative(production(a), children(a)));
+                index.add(new Alternative(production, nodes));
+            }
+        }
+        if (productions == null) {
+            productions = new int[1];
+            children = new ForestNode[1][];
+        } else if (alternativeCount - 1 == productions.length) {
+            productions = Arrays.copyOf(productions, productions.length * 2);
+            children = Arrays.copyOf(children, children.length * 2);
+        }
+        productions[alternativeCount - 1] = production;
+        children[alternativeCount++ - 1] = nodes;
+    }
+
+    private static boolean sameNodes(ForestNode[] a, ForestNode[] b) {
+        for (int i = 0; i < a.length; i++)
+            if (a[i] != b[i])
+                return false;
+        return true;
+    }
+
+    public int alternativeCount() {
+        return alternativeCount;
+    }
+
+    public int production(int alternative) {
+        return alternative == 0 ? firstProduction : productions[alternative - 1];
+    }
+
+    public ForestNode[] children(int alternative) {
+        return alternative == 0 ? firstChildren : children[alternative - 1];
+    }
+
+    public boolean isAmbiguous() {
+        return alternativeCount > 1;
+    }
+
+    /**
+     * @return number of parse trees in forest under this node or Long.MAX_VALUE if there are too many
+     * (or infinitely many, when a cyclic grammar like A-> A makes a cycle in forest)
+     */
+    public long treeCount() {
+        // post order with an explicit stack, so long inputs don't overflow the call stack
+        // a node is IN_PROGRESS while its children are counted, reaching it again means it's in a cycle
+        HashMap<ForestNode, Long> counts = new HashMap<>();
+        ArrayList<ForestNode> stack = new ArrayList<>();
+        stack.add(this);
+        while (!stack.isEmpty()) {
+            ForestNode node = stack.get(stack.size() - 1);
+            Long count = counts.get(node);
+            if (count == null) {
+                counts.put(node, IN_PROGRESS);
+                for (int a = 0; a < node.alternativeCount; a++)
+                    for (ForestNode child : node.children(a))
+                        if (!counts.containsKey(child))
+                            stack.add(child);
+            } else {
+                stack.remove(stack.size() - 1);
+                if (count == IN_PROGRESS)
+                    counts.put(node, count(node, counts));
+            }
+        }
+        return counts.get(this);
+    }
+
+    private static long count(ForestNode node, HashMap<ForestNode, Long> counts) {
+        if (node.alternativeCount == 0)
+            return 1;
+        long total = 0;
+        for (int a = 0; a < node.alternativeCount; a++) {
+            long product = 1;
+            for (ForestNode child : node.children(a)) {
+                long count = counts.get(child);
+                if (count == IN_PROGRESS || count == Long.MAX_VALUE)
+                    return Long.MAX_VALUE;
+                product = multiply(product, count);
+            }
+            total = total + product < 0 ? Long.MAX_VALUE : total + product;
+        }
+        return total;
+    }
+
+    private static class Alternative {
+        // key of an alternative in index, children are compared by identity
+        final int production;
+        final ForestNode[] children;
+
+        Alternative(int production, ForestNode[] children) {
+            this.production = production;
+            this.children = children;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Alternative && ((Alternative) o).production == production
+                    && sameNodes(((Alternative) o).children, children);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * production + Arrays.hashCode(children);
+        }
+    }
+
+    private static long multiply(long a, long b) {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+}
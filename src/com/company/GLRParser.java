@@ -0,0 +1,397 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+
+public class GLRParser {
+    // generalized LR driver, it parses with a table even if it has conflicts (Tomita's algorithm with Farshi's fix)
+    // every action of a conflicting cell is taken: stacks are forked into a graph-structured stack (GSS)
+    //      a GSS node is a state at a position of input and its edges point to the nodes below it,
+    //      so stacks share their common prefixes and there is only one node for each state at a position
+    // every edge is labeled with a node of the shared packed parse forest (ForestNode) that covers its tokens
+    // when the table has a single action for a cell and there is a single stack, it works like LRParser
+    // number of GSS nodes and forest nodes are polynomial in input length, even when input is ambiguous
+    private static final ForestNode[] NO_CHILDREN = new ForestNode[0];
+    private static final int INDEX_THRESHOLD = 8;
+
+    private final Grammar grammar;
+    private final ParseTable table;
+    private final HashMap<Integer, int[]> conflictActions;     // state * terminalCount + terminal -> all its actions
+    private final BitSet conflictCells;                        // keys of conflictActions, it's checked before the map
+    private final int[] ruleLength;                            // production -> number of symbols in right hand
+    private final String name;                                 // prefix of its metrics e.x: "glr.lalr1"
+    private Metrics metrics;
+
+    // state of current parse
+    private int position;                                      // index of current token
+    private int terminal;                                      // current token
+    private Node[] nodeOf;                                     // state -> its node at current position or null
+    private ArrayList<Node> nodes = new ArrayList<>();         // nodes at current position in order of creation
+    private ArrayList<Node> nextNodes = new ArrayList<>();
+    private int acted;                                         // nodes[0, acted) have done their actions
+    // reductions to do: the node at the end of reduced path, production and forest nodes of path
+    private Node[] reductionBelow = new Node[16];
+    private int[] reductionProduction = new int[16];
+    private ForestNode[][] reductionChildren = new ForestNode[16][];
+    private int reductionCount;
+    private final ForestNode[] path;                           // forest nodes of the path that findReductions is on
+    private final ArrayList<Node> shifts = new ArrayList<>();  // nodes that shift current token
+    private final ArrayList<ForestNode> forestNodes = new ArrayList<>();      // forest nodes that end at position
+    private final HashMap<Long, ForestNode> forestIndex = new HashMap<>();    // (symbol, start) -> one of forestNodes
+    private ForestNode forest;
+    private int tokenCount;
+    private long nodeCount, edgeCount, forestNodeCount;
+    private int maxStacks;
+
+    /**
+     * @param conflicts conflicts of table, a conflicting cell only keeps one of its actions in table
+     * @param type type of table, it's used in names of metrics
+     */
+    public GLRParser(Grammar grammar, ParseTable table, List<Conflict> conflicts, String type) {
+        this.grammar = grammar;
+        this.table = table;
+        this.name = "glr." + type;
+        conflictActions = new HashMap<>();
+        conflictCells = new BitSet();
+        for (Conflict conflict : conflicts) {
+            int key = Integer.parseInt(conflict.row) * grammar.terminalCount + grammar.id(conflict.column);
+            int[] actions = conflictActions.get(key);
+            if (actions == null)
+                actions = new int[]{table.action(Integer.parseInt(conflict.row), grammar.id(conflict.column))};
+            actions = addAction(actions, ParseTable.parseAction(conflict.conflict1));
+            actions = addAction(actions, ParseTable.parseAction(conflict.conflict2));
+            conflictActions.put(key, actions);
+            conflictCells.set(key);
+        }
+        ruleLength = new int[grammar.productionCount()];
+        for (int i = 0; i < grammar.productionCount(); i++)
+            ruleLength[i] = grammar.rhs[i].length;
+        nodeOf = new Node[table.stateCount];
+        int maxLength = 0;
+        for (int length : ruleLength)
+            maxLength = Math.max(maxLength, length);
+        path = new ForestNode[maxLength];
+        metrics = Metrics.NONE;
+    }
+
+    private static int[] addAction(int[] actions, int action) {
+        for (int a : actions)
+            if (a == action)
+                return actions;
+        int[] result = Arrays.copyOf(actions, actions.length + 1);
+        result[actions.length] = action;
+        return result;
+    }
+
+    public GLRParser metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @return "acc" if tokens are accepted or "error"
+     */
+    public String parse(TokenSource tokens) {
+        long start = metrics.start();
+        nodeCount = edgeCount = forestNodeCount = 0;
+        maxStacks = 0;
+        String result = run(tokens);
+        if (metrics.enabled()) {
+            metrics.stop(name, start);
+            metrics.add(name + ".parses", 1);
+            metrics.add(name + "." + result, 1);
+            metrics.add(name + ".tokens", tokenCount);
+            metrics.add(name + ".gssNodes", nodeCount);
+            metrics.add(name + ".gssEdges", edgeCount);
+            metrics.add(name + ".forestNodes", forestNodeCount);
+            metrics.max(name + ".maxStacks", maxStacks);
+        }
+        return result;
+    }
+
+    /**
+     * @return root of parse forest of last parse, it's null if it wasn't accepted
+     */
+    public ForestNode forest() {
+        return forest;
+    }
+
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    private String run(TokenSource tokens) {
+        // a parse that ended with error may have left some nodes
+        for (Node node : nodes)
+            nodeOf[node.state] = null;
+        nodes.clear();
+        Arrays.fill(reductionBelow, 0, reductionCount, null);
+        Arrays.fill(reductionChildren, 0, reductionCount, null);
+        reductionCount = 0;
+        shifts.clear();
+        forestNodes.clear();
+        forestIndex.clear();
+        position = 0;
+        tokenCount = 0;
+        forest = null;
+        newNode(0);
+
+        Token token;
+        while ((token = tokens.next()) != null) {
+            tokenCount++;
+            terminal = grammar.id(token.token);
+            if (terminal == -1 || !grammar.isTerminal(terminal))
+                return "error";
+
+            // every node does its actions, reductions may add nodes and edges at this position
+            acted = 0;
+            while (acted < nodes.size() || reductionCount > 0) {
+                if (reductionCount > 0)
+                    reduce();
+                else
+                    act(nodes.get(acted++));
+            }
+            maxStacks = Math.max(maxStacks, nodes.size());
+
+            if (forest != null)
+                return "acc";
+            if (shifts.isEmpty())
+                return "error";
+            shift();
+        }
+        // input finished before it was accepted
+        return "error";
+    }
+
+    private void act(Node node) {
+        int[] actions = actionsOf(node.state);
+        if (actions == null) {
+            act(node, table.action(node.state, terminal));
+        } else {
+            for (int a : actions)
+                act(node, a);
+        }
+    }
+
+    /**
+     * @return all actions of (@param)state on current token if it's a conflicting cell or null
+     */
+    private int[] actionsOf(int state) {
+        int key = state * grammar.terminalCount + terminal;
+        return conflictCells.get(key) ? conflictActions.get(key) : null;
+    }
+
+    private void act(Node node, int action) {
+        int kind = ParseTable.kind(action);
+        if (kind == ParseTable.SHIFT) {
+            node.shiftTo = ParseTable.value(action);
+            shifts.add(node);
+        } else if (kind == ParseTable.REDUCE || kind == ParseTable.ACCEPT) {
+            // ACCEPT is a reduce of start symbol, reduce() accepts it if it's at the bottom of a stack
+            int production = ParseTable.value(action);
+            findReductions(node, production, ruleLength[production], null, -1);
+        }
+    }
+
+    /**
+     * adds a reduction of (@param)production for every path of (@param)length edges from (@param)node
+     * @param required if it's not null only the paths that go through edge (@param)requiredEdge of it are reduced,
+     *                 the others are already reduced before that edge was added
+     */
+    private void findReductions(Node node, int production, int length, Node required, int requiredEdge) {
+        if (length == 0) {
+            if (required == null) {
+                // forest nodes of path are in path[0, ruleLength)
+                ForestNode[] children = ruleLength[production] == 0 ? NO_CHILDREN
+                        : Arrays.copyOf(path, ruleLength[production]);
+                if (reductionCount == reductionBelow.length) {
+                    reductionBelow = Arrays.copyOf(reductionBelow, reductionCount * 2);
+                    reductionProduction = Arrays.copyOf(reductionProduction, reductionCount * 2);
+                    reductionChildren = Arrays.copyOf(reductionChildren, reductionCount * 2);
+                }
+                reductionBelow[reductionCount] = node;
+                reductionProduction[reductionCount] = production;
+                reductionChildren[reductionCount++] = children;
+            }
+            return;
+        }
+        // positions only go down along a path, so the required edge can't be found under its node
+        if (required != null && node.position < required.position)
+            return;
+        for (int e = 0; e < node.edgeCount; e++) {
+            path[length - 1] = node.label(e);
+            boolean through = node == required && e == requiredEdge;
+            findReductions(node.below(e), production, length - 1, through ? null : required, requiredEdge);
+        }
+    }
+
+    /**
+     * does the last reduction in queue
+     */
+    private void reduce() {
+        reductionCount--;
+        Node below = reductionBelow[reductionCount];
+        int production = reductionProduction[reductionCount];
+        ForestNode[] children = reductionChildren[reductionCount];
+        reductionBelow[reductionCount] = null;
+        reductionChildren[reductionCount] = null;
+        int left = grammar.lhs[production];
+        if (left == grammar.startSymbol && terminal == grammar.endMarker && below.state == 0) {
+            // the whole input is reduced to start symbol, every accepting stack adds its alternative
+            forest = forestNode(left, 0);
+            forest.add(production, children);
+            return;
+        }
+        int state = table.goTo(below.state, left);
+        if (state == -1)
+            return;
+        ForestNode label = forestNode(left, below.position);
+        label.add(production, children);
+
+        Node node = nodeOf[state];
+        if (node == null) {
+            node = newNode(state);
+            node.addEdge(below, label);
+            edgeCount++;
+            return;
+        }
+        if (node.hasEdge(below))
+            return;
+        node.addEdge(below, label);
+        edgeCount++;
+        // nodes that have already done their actions must reduce again through the new edge
+        int edge = node.edgeCount - 1;
+        for (int i = 0; i < acted; i++) {
+            Node done = nodes.get(i);
+            int[] actions = actionsOf(done.state);
+            if (actions == null) {
+                reduceAgain(done, table.action(done.state, terminal), node, edge);
+            } else {
+                for (int a : actions)
+                    reduceAgain(done, a, node, edge);
+            }
+        }
+    }
+
+    private void reduceAgain(Node node, int action, Node required, int requiredEdge) {
+        if (ParseTable.kind(action) != ParseTable.REDUCE && ParseTable.kind(action) != ParseTable.ACCEPT)
+            return;
+        int production = ParseTable.value(action);
+        if (ruleLength[production] > 0)
+            findReductions(node, production, ruleLength[production], required, requiredEdge);
+    }
+
+    private void shift() {
+        ForestNode leaf = new ForestNode(terminal, position, position + 1);
+        forestNodeCount++;
+        for (Node node : nodes)
+            nodeOf[node.state] = null;
+        ArrayList<Node> swap = nodes;
+        nodes = nextNodes;
+        nextNodes = swap;
+        nodes.clear();
+        position++;
+        forestNodes.clear();
+        if (!forestIndex.isEmpty())
+            forestIndex.clear();
+        for (Node from : shifts) {
+            Node node = nodeOf[from.shiftTo];
+            if (node == null)
+                node = newNode(from.shiftTo);
+            node.addEdge(from, leaf);
+            edgeCount++;
+        }
+        shifts.clear();
+    }
+
+    /**
+     * @return the forest node of (@param)symbol from (@param)start to current position
+     */
+    private ForestNode forestNode(int symbol, int start) {
+        // there are only a few of them at a position unless input is ambiguous, so they are searched
+        // one by one and the index is only used when there are more of them
+        ForestNode node = null;
+        if (forestNodes.size() <= INDEX_THRESHOLD) {
+            for (ForestNode n : forestNodes)
+                if (n.symbol == symbol && n.start == start) {
+                    node = n;
+                    break;
+                }
+        } else {
+            if (forestIndex.isEmpty())
+                for (ForestNode n : forestNodes)
+                    forestIndex.put(((long) n.symbol << 32) | n.start, n);
+            node = forestIndex.get(((long) symbol << 32) | start);
+        }
+        if (node == null) {
+            node = new ForestNode(symbol, start, position);
+            forestNodes.add(node);
+            if (!forestIndex.isEmpty())
+                forestIndex.put(((long) symbol << 32) | start, node);
+            forestNodeCount++;
+        }
+        return node;
+    }
+
+    private Node newNode(int state) {
+        Node node = new Node(state, position);
+        nodeOf[state] = node;
+        nodes.add(node);
+        nodeCount++;
+        return node;
+    }
+
+    private static class Node {
+        // the first edge is kept in fields, a node only gets more edges where stacks merge
+        final int state;
+        final int position;
+        Node firstBelow;                            // the node under it
+        ForestNode firstLabel;                      // forest node of symbol of the edge
+        Node[] below;                               // the other edges
+        ForestNode[] labels;
+        int edgeCount;
+        int shiftTo;                                // state that it shifts current token into
+
+        Node(int state, int position) {
+            this.state = state;
+            this.position = position;
+        }
+
+        Node below(int edge) {
+            return edge == 0 ? firstBelow : below[edge - 1];
+        }
+
+        ForestNode label(int edge) {
+            return edge == 0 ? firstLabel : labels[edge - 1];
+        }
+
+        void addEdge(Node node, ForestNode label) {
+            if (edgeCount == 0) {
+                firstBelow = node;
+                firstLabel = label;
+                edgeCount = 1;
+                return;
+            }
+            if (below == null) {
+                below = new Node[1];
+                labels = new ForestNode[1];
+            } else if (edgeCount - 1 == below.length) {
+                below = Arrays.copyOf(below, below.length * 2);
+                labels = Arrays.copyOf(labels, labels.length * 2);
+            }
+            below[edgeCount - 1] = node;
+            labels[edgeCount++ - 1] = label;
+        }
+
+        boolean hasEdge(Node node) {
+            for (int e = 0; e < edgeCount; e++)
+                if (below(e) == node)
+                    return true;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.company;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+public class Grammar {
+    // compiled form of the rules read from grammar file
+    // every symbol is interned to an int id:
+    //      terminals get ids [0, terminalCount) in order of appearance and "$" is the last terminal
+    //      nonTerminals get ids [terminalCount, symbolCount) in order of appearance in left hand of rules
+    // every production is stored as its left hand id and an int[] of its right hand ids (empty for epsilon)
+    // a grammar is never changed after it's created, so it can be shared between threads
+    // precedence and associativity of terminals come from declarations like yacc, later lines have higher precedence
+    //      "%left + - ", "%right ^ ", "%nonassoc < > "
+    // a production gets precedence of its last terminal that has one, or of the name after "%prec" at the end of it
+    //      e.x: "E-> - E %prec UMINUS " (UMINUS only needs a declaration, it doesn't have to be a terminal)
+    static final String END = "$";
+    static final String EPSILON = "#";
+    static final String PREC = "%prec";
+    static final int LEFT = 1;
+    static final int RIGHT = 2;
+    static final int NONASSOC = 3;
+
+    final String[] names;                       // symbol id -> symbol name
+    final HashMap<String, Integer> ids;         // symbol name -> symbol id
+    final int terminalCount;
+    final int endMarker;                        // id of "$"
+    final int startSymbol;                      // left hand of first rule
+    final int[] lhs;                            // production -> left hand symbol id
+    final int[][] rhs;                          // production -> right hand symbol ids
+    final String[] rules;                       // production -> rule text (e.x: "A-> B c ")
+    final int[][] productionsOf;                // nonTerminal id - terminalCount -> its productions
+    final BitSet[] closures;                    // nonTerminal id - terminalCount -> productions in LR(0) closure of it
+    final int[] precedence;                     // terminal id -> precedence level or 0 if it doesn't have one
+    final int[] associativity;                  // terminal id -> LEFT, RIGHT, NONASSOC or 0
+    final int[] productionPrecedence;           // production -> precedence level or 0
+
+    /**
+     * @param lines rules in "A-> B c " format and precedence declarations, the way readRules creates them
+     */
+    public Grammar(ArrayList<String> lines) {
+        // declarations and "%prec" parts are taken out, so the rest is the same as a grammar without them
+        HashMap<String, Integer> levels = new HashMap<>();
+        HashMap<String, Integer> kinds = new HashMap<>();
+        ArrayList<String> rules = new ArrayList<>();
+        ArrayList<String> precNames = new ArrayList<>();
+        int level = 0;
+        for (String line : lines) {
+            // token declarations are for LexerGenerator
+            if (line.startsWith(Lexer.TOKEN + " ") || line.startsWith(Lexer.IGNORE_DECLARATION + " "))
+                continue;
+            int kind = declarationKind(line);
+            if (kind != 0) {
+                level++;
+                String[] names = line.trim().split(" +");
+                for (int i = 1; i < names.length; i++) {
+                    levels.put(names[i], level);
+                    kinds.put(names[i], kind);
+                }
+                continue;
+            }
+            int prec = line.indexOf(" " + PREC + " ");
+            if (prec == -1) {
+                rules.add(line);
+                precNames.add(null);
+            } else {
+                rules.add(line.substring(0, prec + 1));
+                precNames.add(line.substring(prec + PREC.length() + 2).trim());
+            }
+        }
+
+        this.rules = rules.toArray(new String[0]);
+        ids = new HashMap<>();
+        ArrayList<String> nonTerms = new ArrayList<>();
+        ArrayList<String> terms = new ArrayList<>();
+        String[][] split = new String[rules.size()][];
+
+        // every symbol that appears in left hand of a rule is a nonTerminal
+        for (int i = 0; i < rules.size(); i++) {
+            String rule = rules.get(i);
+            String left = rule.substring(0, rule.indexOf("->"));
+            if (!nonTerms.contains(left))
+                nonTerms.add(left);
+            split[i] = rule.substring(rule.indexOf("->") + 2).trim().split(" ");
+        }
+        // the others are terminals
+        for (String[] arr : split)
+            for (String symb : arr)
+                if (!symb.isEmpty() && !symb.equals(EPSILON) && !nonTerms.contains(symb) && !terms.contains(symb))
+                    terms.add(symb);
+        terms.remove(END);
+        terms.add(END);
+
+        terminalCount = terms.size();
+        endMarker = terminalCount - 1;
+        names = new String[terms.size() + nonTerms.size()];
+        for (int i = 0; i < terms.size(); i++)
+            names[i] = terms.get(i);
+        for (int i = 0; i < nonTerms.size(); i++)
+            names[terminalCount + i] = nonTerms.get(i);
+        for (int i = 0; i < names.length; i++)
+            ids.put(names[i], i);
+
+        lhs = new int[rules.size()];
+        rhs = new int[rules.size()][];
+        for (int i = 0; i < rules.size(); i++) {
+            String rule = rules.get(i);
+            lhs[i] = ids.get(rule.substring(0, rule.indexOf("->")));
+            int count = 0;
+            for (String symb : split[i])
+                if (!symb.isEmpty() && !symb.equals(EPSILON))
+                    count++;
+            rhs[i] = new int[count];
+            count = 0;
+            for (String symb : split[i])
+                if (!symb.isEmpty() && !symb.equals(EPSILON))
+                    rhs[i][count++] = ids.get(symb);
+        }
+        startSymbol = lhs[0];
+        productionsOf = indexProductions();
+        closures = closeNonTerminals();
+
+        precedence = new int[terminalCount];
+        associativity = new int[terminalCount];
+        for (int t = 0; t < terminalCount; t++)
+            if (levels.containsKey(names[t])) {
+                precedence[t] = levels.get(names[t]);
+                associativity[t] = kinds.get(names[t]);
+            }
+        productionPrecedence = new int[rules.size()];
+        for (int p = 0; p < rules.size(); p++) {
+            if (precNames.get(p) != null) {
+                Integer named = levels.get(precNames.get(p));
+                if (named == null)
+                    throw new IllegalArgumentException(PREC + " " + precNames.get(p) + " isn't declared in " + rules.get(p));
+                productionPrecedence[p] = named;
+            } else {
+                for (int symb : rhs[p])
+                    if (isTerminal(symb) && precedence[symb] != 0)
+                        productionPrecedence[p] = precedence[symb];
+            }
+        }
+    }
+
+    /**
+     * @return LEFT, RIGHT or NONASSOC if (@param)line is a precedence declaration or 0 if it's a rule
+     */
+    private static int declarationKind(String line) {
+        if (line.startsWith("%left "))
+            return LEFT;
+        if (line.startsWith("%right "))
+            return RIGHT;
+        if (line.startsWith("%nonassoc "))
+            return NONASSOC;
+        return 0;
+    }
+
+    /**
+     * creates a grammar that is already compiled (e.x: loaded from table cache)
+     */
+    Grammar(String[] names, int terminalCount, int[] lhs, int[][] rhs, String[] rules) {
+        this.names = names;
+        this.terminalCount = terminalCount;
+        this.lhs = lhs;
+        this.rhs = rhs;
+        this.rules = rules;
+        endMarker = terminalCount - 1;
+        startSymbol = lhs[0];
+        ids = new HashMap<>();
+        for (int i = 0; i < names.length; i++)
+            ids.put(names[i], i);
+        productionsOf = indexProductions();
+        closures = closeNonTerminals();
+        // conflicts are already resolved in its tables
+        precedence = new int[terminalCount];
+        associativity = new int[terminalCount];
+        productionPrecedence = new int[lhs.length];
+    }
+
+    private int[][] indexProductions() {
+        int[] counts = new int[names.length - terminalCount];
+        for (int left : lhs)
+            counts[left - terminalCount]++;
+        int[][] index = new int[counts.length][];
+        for (int i = 0; i < counts.length; i++)
+            index[i] = new int[counts[i]];
+        int[] filled = new int[counts.length];
+        for (int p = 0; p < lhs.length; p++)
+            index[lhs[p] - terminalCount][filled[lhs[p] - terminalCount]++] = p;
+        return index;
+    }
+
+    /**
+     * e.x: A->Bc, B->Cd, B->e and C->f, closure of A is {A->Bc, B->Cd, B->e, C->f}
+     * it's all productions that a closure adds for an item with '@' before A
+     */
+    private BitSet[] closeNonTerminals() {
+        BitSet[] sets = new BitSet[productionsOf.length];
+        int[] stack = new int[productionsOf.length];
+        for (int n = 0; n < productionsOf.length; n++) {
+            BitSet set = new BitSet(lhs.length);
+            BitSet visited = new BitSet(productionsOf.length);
+            int top = 0;
+            stack[top++] = n;
+            visited.set(n);
+            while (top > 0) {
+                for (int p : productionsOf[stack[--top]]) {
+                    set.set(p);
+                    if (rhs[p].length > 0 && !isTerminal(rhs[p][0]) && !visited.get(rhs[p][0] - terminalCount)) {
+                        visited.set(rhs[p][0] - terminalCount);
+                        stack[top++] = rhs[p][0] - terminalCount;
+                    }
+                }
+            }
+            sets[n] = set;
+        }
+        return sets;
+    }
+
+    /**
+     * reads a grammar in BNF format e.x: <a> ::= <b> "c" | "d"
+     * symbols must be separated by space
+     * epsilon is shown with '#'
+     * precedence is declared in lines like %left "+" "-" and an alternative can end with %prec "UMINUS"
+     * tokens are declared in lines like %token NUM [0-9]+ (see LexerGenerator), they are kept as they are
+     * @return rules in "A-> B c " format and declarations in "%left + - " format
+     */
+    public static ArrayList<String> readRules(String fileName) throws FileNotFoundException {
+        ArrayList<String> rules = new ArrayList<>();
+        Scanner scanner = new Scanner(new File(fileName), "UTF-8");
+        Pattern nonTermPattern = Pattern.compile("<[A-Za-z_]+>");
+        while (scanner.hasNext()) {
+            String line = scanner.nextLine();
+            if (line.trim().isEmpty())
+                continue;
+            if (line.trim().startsWith(Lexer.TOKEN + " ") || line.trim().startsWith(Lexer.IGNORE_DECLARATION + " ")) {
+                rules.add(line.trim());
+                continue;
+            }
+            if (line.trim().startsWith("%")) {
+                rules.add(line.trim().replace("\"", "").replaceAll("\\s+", " ") + " ");
+                continue;
+            }
+            String[] arr = line.substring(line.indexOf("::=") + 3).split("\\|");
+            String firstPart = line.substring(0, line.indexOf("::=")).trim();
+            for (String second : arr) {
+                String rule;
+                rule = firstPart + "-> " + second.trim();
+                rule = rule.replace("\"", "");
+                Matcher m = nonTermPattern.matcher(rule);
+                while (m.find()) {
+                    String str = m.group();
+                    str = str.replace("<", "").replace(">", "");
+                    int start = m.start();
+                    int end = m.end() - 1;
+                    rule = rule.substring(0, start) + str + rule.substring(end + 1);
+                    m = nonTermPattern.matcher(rule);
+                }
+                rule = rule + " ";
+                rules.add(rule);
+            }
+        }
+        scanner.close();
+        return rules;
+    }
+
+    int symbolCount() {
+        return names.length;
+    }
+
+    int productionCount() {
+        return lhs.length;
+    }
+
+    boolean isTerminal(int symbol) {
+        return symbol < terminalCount;
+    }
+
+    /**
+     * @return id of symbol or -1 if there isn't such symbol in grammar
+     */
+    int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * an item is a production and position of '@' in its right hand, packed in a long
+     * e.x: A->B@cD is (production of A->BcD, 1)
+     */
+    static long item(int production, int dot) {
+        return ((long) production << 32) | dot;
+    }
+
+    static int production(long item) {
+        return (int) (item >>> 32);
+    }
+
+    static int dot(long item) {
+        return (int) item;
+    }
+
+    static long advance(long item) {
+        return item + 1;
+    }
+
+    boolean isReducible(long item) {
+        return dot(item) == rhs[production(item)].length;
+    }
+
+    /**
+     * @return the first symbol after '@' or -1 if item is reducible
+     */
+    int symbolAfterDot(long item) {
+        int[] right = rhs[production(item)];
+        int dot = dot(item);
+        return dot < right.length ? right[dot] : -1;
+    }
+
+    /**
+     * @return the item in the same text format as before e.x: "A-> B@c D "
+     */
+    String itemToString(long item) {
+        int production = production(item), dot = dot(item);
+        StringBuilder builder = new StringBuilder();
+        builder.append(names[lhs[production]]).append("->");
+        for (int i = 0; i < dot; i++)
+            builder.append(" ").append(names[rhs[production][i]]);
+        builder.append("@");
+        for (int i = dot; i < rhs[production].length; i++)
+            builder.append(names[rhs[production][i]]).append(" ");
+        return builder.toString();
+    }
+}
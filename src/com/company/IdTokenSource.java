@@ -0,0 +1,24 @@
+package com.company;
+
+
+public interface IdTokenSource extends TokenSource {
+    // tokens that can be read as terminal ids, so a parser doesn't need a Token and a String for each of them
+    // "$" comes once at the end of input, then nextId() returns END
+    int END = -1;
+    int UNKNOWN = -2;           // a lexeme that isn't any token of grammar
+
+    /**
+     * @return terminal id of next token, UNKNOWN or END if input is finished
+     */
+    int nextId();
+
+    /**
+     * @return token of last nextId() as a Token
+     */
+    Token token();
+
+    /**
+     * @return lexeme of last nextId(), it may be a view that is only valid until next call (Lexeme)
+     */
+    CharSequence text();
+}
@@ -0,0 +1,326 @@
+package com.company;
+
+import java.util.Arrays;
+
+
+public class IncrementalParser {
+    // LR parser of a document that is edited, e.x: tokens of a file in an editor
+    // parse() parses all tokens once, then edit() replaces a range of tokens and parses only around the edit:
+    //      the LR stack is persistent, an entry is (state, entry below it) in int arrays that are only appended,
+    //      so a stack is just its top entry and the stack after every token is kept as a checkpoint
+    //      an edit starts from the checkpoint of the token before it, entries below it (symbols of unchanged
+    //      subtrees on the left) are shared, not parsed again
+    //      after each token of the old tokens on the right, the new stack is compared with its old checkpoint,
+    //      once they have the same states the rest of the parse would be the same, so it stops and keeps the old
+    //      checkpoints and result, it only walks the entries above the part they share
+    // so an edit costs the tokens from the edit to where the parse joins the old one, not the size of the document
+    // tokens and checkpoints are in gap buffers, the gap follows edits that change the number of tokens,
+    // so close edits don't move the rest
+    // entries of old stacks aren't freed, when they are too many everything is parsed again in new arrays
+    private static final int ACCEPTED = -2, FAILED = -1;      // results of consume(), others are top entries
+    private final Grammar grammar;
+    private final ParseTable table;
+    private final int[] ruleLength;     // production -> number of symbols in right hand
+    private final int[] ruleLhs;        // production -> left hand symbol id
+    private final String name;          // prefix of its metrics e.x: "parse.lalr1.incremental"
+    private Metrics metrics;
+
+    // stack entries, entry 0 is the bottom of every stack (state 0)
+    private int[] state = new int[1024], below = new int[1024], depth = new int[1024];
+    private int entries;
+    private int entryLimit;             // entries that make it parse everything again
+
+    // token i: terminals[at(i)] its terminal id (-1 if it's not a terminal), checkpoints[at(i)] top entry after it's shifted
+    private int[] terminals = new int[1024], checkpoints = new int[1024];
+    private int gapStart, gapEnd;
+    private int[] replacement = new int[64];
+
+    private int parsed;                 // tokens whose checkpoints are valid, all of them or the ones before errorToken
+    private int errorToken = -1;        // index of the token that made the last parse fail, tokenCount() for "$"
+    private int shifts;                 // counted in every parse or edit and added to metrics at the end of it
+
+    public IncrementalParser(Grammar grammar, ParseTable table) {
+        this(grammar, table, "lr");
+    }
+
+    /**
+     * @param type type of table, it's used in names of metrics
+     */
+    public IncrementalParser(Grammar grammar, ParseTable table, String type) {
+        this.grammar = grammar;
+        this.table = table;
+        this.name = "parse." + type + ".incremental";
+        ruleLength = new int[grammar.productionCount()];
+        ruleLhs = new int[grammar.productionCount()];
+        for (int i = 0; i < grammar.productionCount(); i++) {
+            ruleLength[i] = grammar.rhs[i].length;
+            ruleLhs[i] = grammar.lhs[i];
+        }
+        metrics = Metrics.NONE;
+        // an empty document, so edit() can be used without parse()
+        gapEnd = terminals.length;
+        parseAll();
+    }
+
+    public IncrementalParser metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * reads every token of (@param)tokens, "$" at the end is optional, and parses them
+     * @return "acc" if tokens are accepted or "error"
+     */
+    public String parse(TokenSource tokens) {
+        long start = metrics.start();
+        int count = read(tokens);
+        gapStart = 0;
+        gapEnd = terminals.length;
+        insert(replacement, count);
+        shifts = 0;
+        String result = parseAll();
+        metrics.stop(name, start);
+        metrics.add(name + ".parses", 1);
+        metrics.add(name + ".tokens", count);
+        metrics.add(name + ".shifts", shifts);
+        return result;
+    }
+
+    /**
+     * replaces tokens from index (@param)from up to (@param)to (exclusive) with tokens of (@param)tokens
+     * and parses again from the edit until the parse joins the previous one
+     * e.x: edit(3, 3, tokens) inserts tokens before 4th token, edit(3, 5, new ListTokenSource(empty)) deletes 2 tokens
+     * @return "acc" if the edited tokens are accepted or "error"
+     */
+    public String edit(int from, int to, TokenSource tokens) {
+        if (from < 0 || from > to || to > tokenCount())
+            throw new IndexOutOfBoundsException("edit [" + from + ", " + to + ") of " + tokenCount() + " tokens");
+        long start = metrics.start();
+        int count = read(tokens);
+        if (count == to - from) {
+            // same number of tokens, they are written over the old ones wherever the gap is
+            for (int i = 0; i < count; i++)
+                terminals[at(from + i)] = replacement[i];
+        } else {
+            // the gap is moved to the edit, deleted tokens join it, then new tokens are written at its start
+            moveGap(from);
+            gapEnd += to - from;
+            insert(replacement, count);
+        }
+        shifts = 0;
+        String result = reparse(from, to, count);
+        if (entries > entryLimit) {
+            // most entries belong to old stacks
+            metrics.add(name + ".compactions", 1);
+            parseAll();
+        }
+        metrics.stop(name + ".edit", start);
+        metrics.add(name + ".edits", 1);
+        metrics.add(name + ".editShifts", shifts);
+        return result;
+    }
+
+    /**
+     * @param from first edited token
+     * @param to end of the deleted tokens before the edit
+     * @param count number of inserted tokens
+     */
+    private String reparse(int from, int to, int count) {
+        int delta = count - (to - from);
+        int oldParsed = parsed;
+        if (from > parsed) {
+            // the edit is after the token that failed, tokens before it are the same, so it still fails there
+            return "error";
+        }
+        int top = from == 0 ? 0 : checkpoints[at(from - 1)];
+        int n = tokenCount();
+        for (int i = from; i < n; i++) {
+            int index = at(i);
+            top = consume(top, terminals[index]);
+            if (top < 0)
+                return failed(i);
+            // tokens after the inserted ones are old tokens and still have their old checkpoints
+            if (i >= from + count && i - delta < oldParsed && sameStack(top, checkpoints[index])) {
+                parsed = oldParsed + delta;
+                if (errorToken != -1) {
+                    errorToken += delta;
+                    return "error";
+                }
+                return "acc";
+            }
+            checkpoints[index] = top;
+        }
+        return end(top);
+    }
+
+    private String parseAll() {
+        entries = 1;
+        state[0] = 0;
+        below[0] = -1;
+        depth[0] = 0;
+        int top = 0;
+        int n = tokenCount();
+        for (int i = 0; i < n; i++) {
+            int index = at(i);
+            top = consume(top, terminals[index]);
+            if (top < 0) {
+                entryLimit = Math.max(2 * entries, 1024);
+                return failed(i);
+            }
+            checkpoints[index] = top;
+        }
+        entryLimit = Math.max(2 * entries, 1024);
+        return end(top);
+    }
+
+    private String failed(int token) {
+        parsed = token;
+        errorToken = token;
+        return "error";
+    }
+
+    /**
+     * parses "$" after the last token on stack (@param)top
+     */
+    private String end(int top) {
+        parsed = tokenCount();
+        if (consume(top, grammar.endMarker) == ACCEPTED) {
+            errorToken = -1;
+            return "acc";
+        }
+        errorToken = tokenCount();
+        return "error";
+    }
+
+    /**
+     * reduces until (@param)terminal is shifted, accepted or found to be an error, entries of (@param)top aren't changed
+     * @return top entry after (@param)terminal is shifted, ACCEPTED or FAILED
+     */
+    private int consume(int top, int terminal) {
+        if (terminal < 0)
+            return FAILED;
+        while (true) {
+            int element = table.action(state[top], terminal);
+            int kind = ParseTable.kind(element);
+            if (kind == ParseTable.SHIFT) {
+                shifts++;
+                return push(ParseTable.value(element), top);
+            } else if (kind == ParseTable.REDUCE || kind == ParseTable.ACCEPT) {
+                int ruleNum = ParseTable.value(element);
+                for (int i = ruleLength[ruleNum]; i > 0; i--)
+                    top = below[top];
+                // ACCEPT is a reduce of start symbol, it's accepted only when nothing else is on the stack
+                if (kind == ParseTable.ACCEPT && depth[top] == 0)
+                    return ACCEPTED;
+                int next = table.goTo(state[top], ruleLhs[ruleNum]);
+                if (next == -1)
+                    return FAILED;
+                top = push(next, top);
+            } else {
+                return FAILED;
+            }
+        }
+    }
+
+    private int push(int to, int top) {
+        if (entries == state.length) {
+            state = Arrays.copyOf(state, entries * 2);
+            below = Arrays.copyOf(below, entries * 2);
+            depth = Arrays.copyOf(depth, entries * 2);
+        }
+        state[entries] = to;
+        below[entries] = top;
+        depth[entries] = depth[top] + 1;
+        return entries++;
+    }
+
+    /**
+     * @return true if stacks of entries (@param)a and (@param)b have the same states
+     */
+    private boolean sameStack(int a, int b) {
+        if (depth[a] != depth[b])
+            return false;
+        // both end at entry 0, they are the same from the first entry they share
+        while (a != b) {
+            if (state[a] != state[b])
+                return false;
+            a = below[a];
+            b = below[b];
+        }
+        return true;
+    }
+
+    /**
+     * reads terminal ids of (@param)tokens into replacement, up to "$" or the end
+     * @return number of tokens read
+     */
+    private int read(TokenSource tokens) {
+        int count = 0;
+        Token token;
+        while ((token = tokens.next()) != null) {
+            int terminal = grammar.id(token.token);
+            if (terminal == grammar.endMarker)
+                break;
+            if (count == replacement.length)
+                replacement = Arrays.copyOf(replacement, count * 2);
+            replacement[count++] = terminal == -1 || !grammar.isTerminal(terminal) ? -1 : terminal;
+        }
+        return count;
+    }
+
+    /**
+     * writes tokens at the start of the gap
+     */
+    private void insert(int[] ids, int count) {
+        if (gapEnd - gapStart < count) {
+            int capacity = Math.max(terminals.length * 2, tokenCount() + count + 1024);
+            int tail = terminals.length - gapEnd;
+            int[] newTerminals = Arrays.copyOf(terminals, capacity), newCheckpoints = Arrays.copyOf(checkpoints, capacity);
+            System.arraycopy(terminals, gapEnd, newTerminals, capacity - tail, tail);
+            System.arraycopy(checkpoints, gapEnd, newCheckpoints, capacity - tail, tail);
+            terminals = newTerminals;
+            checkpoints = newCheckpoints;
+            gapEnd = capacity - tail;
+        }
+        System.arraycopy(ids, 0, terminals, gapStart, count);
+        gapStart += count;
+    }
+
+    private void moveGap(int to) {
+        int gap = gapEnd - gapStart;
+        if (to < gapStart) {
+            System.arraycopy(terminals, to, terminals, to + gap, gapStart - to);
+            System.arraycopy(checkpoints, to, checkpoints, to + gap, gapStart - to);
+        } else {
+            System.arraycopy(terminals, gapEnd, terminals, gapStart, to - gapStart);
+            System.arraycopy(checkpoints, gapEnd, checkpoints, gapStart, to - gapStart);
+        }
+        gapStart = to;
+        gapEnd = to + gap;
+    }
+
+    /**
+     * @return index of token (@param)i in terminals and checkpoints
+     */
+    private int at(int i) {
+        return i < gapStart ? i : i + gapEnd - gapStart;
+    }
+
+    public int tokenCount() {
+        return terminals.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * @return terminal id of token (@param)i, -1 if it isn't a terminal of grammar
+     */
+    public int terminal(int i) {
+        return terminals[at(i)];
+    }
+
+    /**
+     * @return index of the token that last parse or edit failed on, tokenCount() if it was "$", -1 if it was accepted
+     */
+    public int errorToken() {
+        return errorToken;
+    }
+}
@@ -1,42 +1,43 @@
 package com.company;
 
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 
 
 public class Item {
     // both LR(1) item and LR(0)
     // LR(0) items are Items with empty Lookahead
+    final Grammar grammar;
     int ruleNum;
-    String rule;
-    ArrayList<String> lookahead;
-
-    public Item(String rule, int ruleNum) {
-        int idx = rule.indexOf("->");
-        if (rule.contains("#")) {
-            // e.x: s-># becomes to s->@
-            this.rule = rule.substring(0, idx + 2) + "@";
-        } else {
-            // e.x: s->ABC becomes to s->@ABC
-            this.rule = rule.substring(0, idx + 2) + "@" + rule.substring(idx + 3);
-        }
-        this.ruleNum = ruleNum;
-        this.lookahead = new ArrayList<>();
+    long core;                  // production and position of '@' packed by Grammar.item()
+    BitSet lookahead;           // ids of lookahead terminals
+
+    public Item(Grammar grammar, int ruleNum) {
+        // e.x: s->ABC becomes to s->@ABC
+        // and s-># becomes to s->@
+        this(grammar, Grammar.item(ruleNum, 0), new BitSet());
     }
 
-    public Item(String rule, int ruleNum, ArrayList<String> lookahead) {
-        this.rule = rule;
-        this.ruleNum = ruleNum;
+    public Item(Grammar grammar, long core, BitSet lookahead) {
+        this.grammar = grammar;
+        this.core = core;
+        this.ruleNum = Grammar.production(core);
         this.lookahead = lookahead;
     }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        builder.append(String.format("%-56s", rule));
-        if (lookahead != null && !lookahead.isEmpty())
-            builder.append(Arrays.toString(lookahead.toArray()));
+        builder.append(String.format("%-56s", grammar.itemToString(core)));
+        if (lookahead != null && !lookahead.isEmpty()) {
+            builder.append("[");
+            for (int t = lookahead.nextSetBit(0); t >= 0; t = lookahead.nextSetBit(t + 1)) {
+                if (t != lookahead.nextSetBit(0))
+                    builder.append(", ");
+                builder.append(grammar.names[t]);
+            }
+            builder.append("]");
+        }
         return builder.toString();
     }
 
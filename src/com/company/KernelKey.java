@@ -0,0 +1,69 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+public class KernelKey {
+    // canonical form of a state's kernel (the items a state was created from, before closure)
+    // two states are the same state if and only if their kernels are equal
+    // for LR(0) only the items are compared, for LR(1) lookaheads are compared too
+    static final Comparator<Item> ORDER = (a, b) -> Long.compare(a.core, b.core);
+
+    private final long[] items;
+    private final long[][] lookaheads;
+    private final int hash;
+
+    private KernelKey(long[] items, long[][] lookaheads) {
+        this.items = items;
+        this.lookaheads = lookaheads;
+        this.hash = 31 * Arrays.hashCode(items) + Arrays.deepHashCode(lookaheads);
+    }
+
+    /**
+     * @param lr0_1 can be 0 or 1
+     * @value 0 lookaheads are ignored
+     * @value 1 lookaheads are part of the key
+     */
+    public static KernelKey of(ArrayList<Item> kernel, int lr0_1) {
+        ArrayList<Item> sorted = kernel;
+        // kernel items are sorted so the order they were created in doesn't matter
+        if (!isSorted(kernel)) {
+            sorted = new ArrayList<>(kernel);
+            sorted.sort(ORDER);
+        }
+        long[] items = new long[sorted.size()];
+        long[][] lookaheads = null;
+        if (lr0_1 == 1)
+            lookaheads = new long[sorted.size()][];
+        for (int i = 0; i < sorted.size(); i++) {
+            items[i] = sorted.get(i).core;
+            if (lr0_1 == 1)
+                lookaheads[i] = sorted.get(i).lookahead.toLongArray();
+        }
+        return new KernelKey(items, lookaheads);
+    }
+
+    static boolean isSorted(ArrayList<Item> kernel) {
+        for (int i = 1; i < kernel.size(); i++)
+            if (kernel.get(i - 1).core > kernel.get(i).core)
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof KernelKey))
+            return false;
+        KernelKey key = (KernelKey) o;
+        return hash == key.hash && Arrays.equals(items, key.items) && Arrays.deepEquals(lookaheads, key.lookaheads);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,194 @@
+package com.company;
+
+import java.util.Arrays;
+
+
+public class LLParser {
+    // LL(1) driver, a new one should be created for each thread
+    // stack holds symbol ids and it grows when needed
+    private final Grammar grammar;
+    private final int[][] table;
+    private int[] tokenStack;           // a stack for symbol ids
+    private int top;                    // index of top of stack
+    private ParseTrace trace;           // receives every step, nothing is called if it's NONE
+    private boolean tracing;
+    private ParseListener listener;     // semantic events, like trace nothing is called if it's NONE
+    private boolean listening;
+    // for listener: predicted productions that aren't reduced yet and how many symbols of their right hands are left
+    // a production is reduced when its right hand is done, so listener gets shifts and reduces in the same order as LR
+    private int[] frames = new int[64];
+    private int[] left = new int[64];
+    private int frameTop;
+    private Metrics metrics;
+    private int tokenCount;             // number of tokens read in last parse, "$" and a token that fails too
+    private int matches, maxTop;        // counted in every parse and added to metrics at the end of it
+    private final int[] predictions;    // production -> number of times it's predicted in a parse
+
+    public LLParser(Grammar grammar, int[][] table) {
+        this.grammar = grammar;
+        this.table = table;
+        tokenStack = new int[64];
+        trace = ParseTrace.NONE;
+        listener = ParseListener.NONE;
+        metrics = Metrics.NONE;
+        predictions = new int[grammar.productionCount()];
+    }
+
+    public LLParser metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public LLParser trace(ParseTrace trace) {
+        this.trace = trace;
+        tracing = trace != ParseTrace.NONE;
+        return this;
+    }
+
+    public LLParser listener(ParseListener listener) {
+        this.listener = listener;
+        listening = listener != ParseListener.NONE;
+        return this;
+    }
+
+    /**
+     * @return "acc" if tokens are accepted or "error"
+     */
+    public String parse(TokenSource inputStream) {
+        if (!metrics.enabled())
+            return run(inputStream);
+        long start = metrics.start();
+        matches = 0;
+        maxTop = 0;
+        Arrays.fill(predictions, 0);
+        String result = run(inputStream);
+        String name = "parse." + ParseTables.LL1;
+        metrics.stop(name, start);
+        metrics.add(name + ".parses", 1);
+        metrics.add(name + "." + result, 1);
+        metrics.add(name + ".tokens", tokenCount);
+        metrics.add(name + ".matches", matches);
+        for (int p = 0; p < predictions.length; p++)
+            if (predictions[p] > 0)
+                metrics.add(name + ".predictions.r" + p, predictions[p]);
+        metrics.max(name + ".maxStackDepth", maxTop + 1);
+        return result;
+    }
+
+    private String run(TokenSource inputStream) {
+        top = -1;
+        push(grammar.endMarker);
+        // push start symbol to stack
+        push(grammar.startSymbol);
+        if (tracing)
+            trace.step(ParseTrace.START, -1, -1, null, null, tokenStack, top);
+        if (listening) {
+            frameTop = -1;
+            listener.onStart();
+        }
+        tokenCount = 0;
+        // the most left token is read once, however many productions are predicted on it before it's matched
+        Token token = null;
+        int terminal = -1;
+        while (top >= 0) {
+            int topStack = tokenStack[top];
+            if (token == null) {
+                token = inputStream.peek();
+                if (token == null)
+                    // input finished before stack
+                    return error(topStack, null);
+                tokenCount++;
+                terminal = grammar.id(token.token);
+            }
+            if (terminal == topStack) {
+                // if most left token is equal to top stack
+                // it will be removed from input stream and will be poped from stack
+                if (tracing)
+                    trace.step(ParseTrace.MATCH, topStack, -1, token, null, tokenStack, top);
+                if (listening)
+                    // a Lexeme of a TokenStream keeps its offset in source (SyntaxTree spans)
+                    match(topStack, inputStream instanceof IdTokenSource
+                            ? ((IdTokenSource) inputStream).text() : token.lexeme);
+                inputStream.next();
+                token = null;
+                matches++;
+                top--;
+            } else if (!grammar.isTerminal(topStack)) {
+                // if top stack is non terminal
+                int rule = terminal == -1 || !grammar.isTerminal(terminal) ? -1
+                        : table[topStack - grammar.terminalCount][terminal];
+                if (rule == -1)
+                    return error(topStack, token);
+                if (tracing)
+                    trace.step(ParseTrace.PREDICT, topStack, rule, token, null, tokenStack, top);
+                if (listening)
+                    predict(rule);
+                predictions[rule]++;
+                top--;
+                int[] right = grammar.rhs[rule];
+                for (int i = right.length - 1; i >= 0; i--)
+                    // push all the symbols in the rule to the stack from right to left
+                    push(right[i]);
+            } else {
+                // if top stack is terminal and it is not equal to most left token of input stream
+                return error(topStack, token);
+            }
+        }
+        if (listening)
+            listener.onAccept();
+        if (tracing)
+            trace.step(ParseTrace.ACCEPT, -1, -1, inputStream.peek(), null, tokenStack, top);
+        return "acc";
+    }
+
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    private void predict(int production) {
+        listener.onPredict(production);
+        if (++frameTop == frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+            left = Arrays.copyOf(left, left.length * 2);
+        }
+        frames[frameTop] = production;
+        left[frameTop] = grammar.rhs[production].length;
+        completeFrames();
+    }
+
+    private void match(int terminal, CharSequence lexeme) {
+        listener.onMatch(terminal, lexeme);
+        // "$" isn't in any right hand and LR doesn't shift it either
+        if (frameTop < 0)
+            return;
+        listener.onShift(terminal, lexeme);
+        left[frameTop]--;
+        completeFrames();
+    }
+
+    /**
+     * reduces productions whose right hands are done, a reduced nonTerminal is one symbol done of its parent
+     */
+    private void completeFrames() {
+        while (frameTop >= 0 && left[frameTop] == 0) {
+            int production = frames[frameTop--];
+            listener.onReduce(production, grammar.rhs[production].length);
+            if (frameTop >= 0)
+                left[frameTop]--;
+        }
+    }
+
+    private String error(int symbol, Token token) {
+        if (tracing)
+            trace.step(ParseTrace.ERROR, symbol, -1, token, null, tokenStack, top);
+        return "error";
+    }
+
+    private void push(int symbol) {
+        if (++top == tokenStack.length)
+            tokenStack = Arrays.copyOf(tokenStack, top * 2);
+        tokenStack[top] = symbol;
+        if (top > maxTop)
+            maxTop = top;
+    }
+}
@@ -0,0 +1,213 @@
+package com.company;
+
+import java.util.Arrays;
+
+
+public class LRParser {
+    // LR driver for any of LR(0), SLR(1), LALR(1) and LR(1) tables
+    // state and symbol stacks are int arrays that grow when needed
+    // a reduce doesn't consume the token, so the loop just runs again on the same token
+    // an IdTokenSource is read by terminal ids, a Token is only created for it when there is a trace
+    private static final int SHIFTED = 0, ACCEPTED = 1, FAILED = 2;
+    private final Grammar grammar;
+    private final ParseTable table;
+    private final int[] ruleLength;     // production -> number of symbols in right hand
+    private final int[] ruleLhs;        // production -> left hand symbol id
+    private int[] numStack;             // a stack for state numbers
+    private int[] tokenStack;           // a stack for symbol ids of tokens and reduced nonTerminals
+    private int top;                    // index of top of both stacks
+    private int tokenCount;             // number of tokens read in last parse
+    private ParseTrace trace;           // receives every step, nothing is called if it's NONE
+    private boolean tracing;
+    private ParseListener listener;     // semantic events, like trace nothing is called if it's NONE
+    private boolean listening;
+    private final String name;          // prefix of its metrics e.x: "parse.lr1"
+    private Metrics metrics;
+    private int shifts, maxTop;         // counted in every parse and added to metrics at the end of it
+    private final int[] reduces;        // production -> number of reduces in a parse
+
+    public LRParser(Grammar grammar, ParseTable table) {
+        this(grammar, table, "lr");
+    }
+
+    /**
+     * @param type type of table, it's used in names of metrics
+     */
+    public LRParser(Grammar grammar, ParseTable table, String type) {
+        this.grammar = grammar;
+        this.table = table;
+        this.name = "parse." + type;
+        ruleLength = new int[grammar.productionCount()];
+        ruleLhs = new int[grammar.productionCount()];
+        for (int i = 0; i < grammar.productionCount(); i++) {
+            ruleLength[i] = grammar.rhs[i].length;
+            ruleLhs[i] = grammar.lhs[i];
+        }
+        numStack = new int[64];
+        tokenStack = new int[64];
+        trace = ParseTrace.NONE;
+        listener = ParseListener.NONE;
+        metrics = Metrics.NONE;
+        reduces = new int[grammar.productionCount()];
+    }
+
+    public LRParser metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public LRParser trace(ParseTrace trace) {
+        this.trace = trace;
+        tracing = trace != ParseTrace.NONE;
+        return this;
+    }
+
+    public LRParser listener(ParseListener listener) {
+        this.listener = listener;
+        listening = listener != ParseListener.NONE;
+        return this;
+    }
+
+    /**
+     * @return "acc" if tokens are accepted or "error"
+     */
+    public String parse(TokenSource tokens) {
+        if (!metrics.enabled())
+            return tokens instanceof IdTokenSource ? run((IdTokenSource) tokens) : run(tokens);
+        long start = metrics.start();
+        shifts = 0;
+        maxTop = 0;
+        Arrays.fill(reduces, 0);
+        String result = tokens instanceof IdTokenSource ? run((IdTokenSource) tokens) : run(tokens);
+        metrics.stop(name, start);
+        metrics.add(name + ".parses", 1);
+        metrics.add(name + "." + result, 1);
+        metrics.add(name + ".tokens", tokenCount);
+        metrics.add(name + ".shifts", shifts);
+        long reduceCount = 0;
+        for (int p = 0; p < reduces.length; p++)
+            if (reduces[p] > 0) {
+                metrics.add(name + ".reduces.r" + p, reduces[p]);
+                reduceCount += reduces[p];
+            }
+        metrics.add(name + ".reduces", reduceCount);
+        metrics.max(name + ".maxStackDepth", maxTop + 1);
+        return result;
+    }
+
+    private String run(TokenSource tokens) {
+        start();
+        Token token;
+        while ((token = tokens.next()) != null) {
+            tokenCount++;
+            int terminal = grammar.id(token.token);
+            if (terminal == -1 || !grammar.isTerminal(terminal))
+                return error(-1, token);
+            int result = consume(terminal, token, token.lexeme);
+            if (result != SHIFTED)
+                return result == ACCEPTED ? "acc" : "error";
+        }
+        // input finished before it was accepted
+        return error(-1, null);
+    }
+
+    private String run(IdTokenSource tokens) {
+        start();
+        int terminal;
+        while ((terminal = tokens.nextId()) != IdTokenSource.END) {
+            tokenCount++;
+            Token token = tracing ? tokens.token() : null;
+            if (terminal == IdTokenSource.UNKNOWN)
+                return error(-1, token);
+            int result = consume(terminal, token, listening ? tokens.text() : null);
+            if (result != SHIFTED)
+                return result == ACCEPTED ? "acc" : "error";
+        }
+        return error(-1, null);
+    }
+
+    private void start() {
+        top = 0;
+        tokenCount = 0;
+        numStack[0] = 0;
+        tokenStack[0] = grammar.endMarker;
+        if (tracing)
+            trace.step(ParseTrace.START, -1, -1, null, numStack, tokenStack, top);
+        if (listening)
+            listener.onStart();
+    }
+
+    /**
+     * reduces until (@param)terminal is shifted, accepted or found to be an error
+     * @param token only used for the trace
+     * @param lexeme only used for the listener
+     * @return SHIFTED, ACCEPTED or FAILED
+     */
+    private int consume(int terminal, Token token, CharSequence lexeme) {
+        while (true) {
+            int element = table.action(numStack[top], terminal);
+            int kind = ParseTable.kind(element);
+            if (kind == ParseTable.SHIFT) {
+                push(ParseTable.value(element), terminal);
+                shifts++;
+                if (listening)
+                    listener.onShift(terminal, lexeme);
+                if (tracing)
+                    trace.step(ParseTrace.SHIFT, terminal, -1, token, numStack, tokenStack, top);
+                return SHIFTED;
+            } else if (kind == ParseTable.REDUCE || kind == ParseTable.ACCEPT) {
+                // pop all the symbols in right hand of the rule, then push its left hand
+                // and find next state from GOTO part of table
+                int ruleNum = ParseTable.value(element);
+                top -= ruleLength[ruleNum];
+                if (kind == ParseTable.ACCEPT && top == 0) {
+                    // the whole input is reduced to start symbol
+                    if (listening) {
+                        listener.onReduce(ruleNum, ruleLength[ruleNum]);
+                        listener.onAccept();
+                    }
+                    if (tracing)
+                        trace.step(ParseTrace.ACCEPT, -1, -1, token, numStack, tokenStack, top);
+                    return ACCEPTED;
+                }
+                int lhs = ruleLhs[ruleNum];
+                int next = table.goTo(numStack[top], lhs);
+                if (next == -1) {
+                    // e.x: LR(0) reduces start symbol on any token, but there isn't any GOTO on it at the bottom
+                    error(terminal, token);
+                    return FAILED;
+                }
+                reduces[ruleNum]++;
+                push(next, lhs);
+                if (listening)
+                    listener.onReduce(ruleNum, ruleLength[ruleNum]);
+                if (tracing)
+                    trace.step(ParseTrace.REDUCE, lhs, ruleNum, token, numStack, tokenStack, top);
+            } else {
+                error(terminal, token);
+                return FAILED;
+            }
+        }
+    }
+
+    private String error(int terminal, Token token) {
+        if (tracing)
+            trace.step(ParseTrace.ERROR, terminal, -1, token, numStack, tokenStack, top);
+        return "error";
+    }
+
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    private void push(int state, int symbol) {
+        if (++top == numStack.length) {
+            numStack = Arrays.copyOf(numStack, top * 2);
+            tokenStack = Arrays.copyOf(tokenStack, top * 2);
+        }
+        numStack[top] = state;
+        tokenStack[top] = symbol;
+        if (top > maxTop)
+            maxTop = top;
+    }
+}
@@ -0,0 +1,55 @@
+package com.company;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+public class Lexeme implements CharSequence {
+    // text of a token in bytes of a source, one object is reused for every token, so it's only valid until next token
+    // chars are bytes of UTF-8 text, so they're the real chars for ASCII, toString() decodes it
+    //      e.x: a number can be read with charAt() without creating a String
+    private ByteBuffer source;
+    private int offset;
+    private int length;
+
+    Lexeme set(ByteBuffer source, int offset, int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * @return offset of its first byte in source
+     */
+    int offset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        return (char) (source.get(offset + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException(start + ", " + end);
+        return new Lexeme().set(source, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = source.get(offset + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,55 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+public class Lexer {
+    // minimized DFA that LexerGenerator compiles from token declarations of a grammar file
+    // it reads bytes and every byte is mapped to its class first, so a row has a column for each class instead of 256
+    //      next[state * classCount + class] is the next state or -1, state 0 is the start
+    //      accept[state] is the token of a lexeme that ends in that state: terminal id, IGNORE or -1
+    // it's never changed after it's created, so one lexer can scan many sources in many threads
+    static final String TOKEN = "%token";
+    static final String IGNORE_DECLARATION = "%ignore";
+    static final int IGNORE = -2;
+
+    final Grammar grammar;
+    final int[] classOf;            // byte -> its class
+    final int classCount;
+    final int[] next;
+    final int[] accept;
+
+    Lexer(Grammar grammar, int[] classOf, int classCount, int[] next, int[] accept) {
+        this.grammar = grammar;
+        this.classOf = classOf;
+        this.classCount = classCount;
+        this.next = next;
+        this.accept = accept;
+    }
+
+    /**
+     * maps the file in memory, its lexemes are read from there and aren't copied
+     * a file can't be bigger than 2GB, it's a single mapping
+     */
+    public TokenStream scan(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            // the mapping stays valid after channel is closed
+            return scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param source bytes from its position to its limit are scanned
+     */
+    public TokenStream scan(ByteBuffer source) {
+        return new TokenStream(this, source);
+    }
+
+    int stateCount() {
+        return accept.length;
+    }
+}
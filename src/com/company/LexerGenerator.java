@@ -0,0 +1,504 @@
+package com.company;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+
+public class LexerGenerator {
+    // compiles token declarations of a grammar file to the minimized DFA of a Lexer
+    //      "%token NUM [0-9]+(\.[0-9]+)?"      a terminal and the regex of its lexemes
+    //      "%ignore [ \t\r\n]+"                lexemes that are skipped, like white space and comments
+    // every other terminal of grammar (except "$") is a lexeme that is its own name e.x: "+" or "while"
+    // the longest lexeme wins, on equal lengths names win over regexes and earlier declarations over later ones
+    // regexes are matched against bytes of UTF-8 text, they have:
+    //      chars, '.' (anything but new line), [a-z_] and [^"], ( ), |, *, +, ?
+    //      escapes \n \r \t \f \xHH, classes \d \w \s \D \W \S, and '\' before any other char is that char
+    // steps: regexes -> NFA (Thompson) -> byte classes -> DFA (subset construction) -> minimized DFA
+    private final Grammar grammar;
+    private final Metrics metrics;
+
+    // NFA, a state has either one byte edge or at most two epsilon edges
+    private final ArrayList<BitSet> byteSets = new ArrayList<>();     // state -> bytes of its edge or null
+    private int[] byteNext = new int[64];
+    private int[] epsilon1 = new int[64];
+    private int[] epsilon2 = new int[64];
+    private int[] rankOf = new int[64];                 // state -> rank of the token it accepts or -1
+    private int nfaCount;
+
+    private final ArrayList<Integer> starts = new ArrayList<>();      // first state of every token
+    private final ArrayList<Integer> tokens = new ArrayList<>();      // rank -> terminal id or Lexer.IGNORE
+
+    // regex that is being parsed
+    private String regex;
+    private int position;
+
+    public LexerGenerator(Grammar grammar) {
+        this(grammar, Metrics.NONE);
+    }
+
+    public LexerGenerator(Grammar grammar, Metrics metrics) {
+        this.grammar = grammar;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param lines lines of grammar file the way Grammar.readRules returns them
+     * @return lexer of the declarations or null if there isn't any "%token" or "%ignore" line
+     */
+    public static Lexer compile(ArrayList<String> lines, Grammar grammar, Metrics metrics) {
+        LinkedHashMap<String, String> declared = new LinkedHashMap<>();     // name -> regex
+        ArrayList<String> ignored = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith(Lexer.TOKEN + " ")) {
+                String rest = line.substring(Lexer.TOKEN.length()).trim();
+                int space = rest.indexOf(' ');
+                if (space == -1)
+                    throw new IllegalArgumentException("regex is missing in " + line);
+                declared.put(rest.substring(0, space).replace("\"", ""), rest.substring(space + 1).trim());
+            } else if (line.startsWith(Lexer.IGNORE_DECLARATION + " ")) {
+                ignored.add(line.substring(Lexer.IGNORE_DECLARATION.length()).trim());
+            }
+        }
+        if (declared.isEmpty() && ignored.isEmpty())
+            return null;
+
+        LexerGenerator generator = new LexerGenerator(grammar, metrics);
+        for (int t = 0; t < grammar.terminalCount; t++)
+            if (t != grammar.endMarker && !declared.containsKey(grammar.names[t]))
+                generator.addLiteral(grammar.names[t], t);
+        for (String name : declared.keySet()) {
+            int id = grammar.id(name);
+            if (id == -1 || !grammar.isTerminal(id) || id == grammar.endMarker)
+                throw new IllegalArgumentException(Lexer.TOKEN + " " + name + " isn't a terminal of grammar");
+            generator.addRegex(declared.get(name), id);
+        }
+        for (String regex : ignored)
+            generator.addRegex(regex, Lexer.IGNORE);
+        return generator.generate();
+    }
+
+    /**
+     * adds a token whose only lexeme is (@param)text
+     */
+    public void addLiteral(String text, int token) {
+        int start = newState(), end = start;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8))
+            end = byteEdge(end, b & 0xff);
+        addToken(start, end, token);
+    }
+
+    /**
+     * @param token terminal id or Lexer.IGNORE
+     */
+    public void addRegex(String regex, int token) {
+        this.regex = regex;
+        position = 0;
+        int[] fragment = alternation();
+        if (position < regex.length())
+            throw error("unexpected '" + regex.charAt(position) + "'");
+        addToken(fragment[0], fragment[1], token);
+    }
+
+    private void addToken(int start, int end, int token) {
+        rankOf[end] = tokens.size();
+        starts.add(start);
+        tokens.add(token);
+    }
+
+    public Lexer generate() {
+        long start = metrics.start();
+        int[] classOf = new int[256];
+        int[] representative = byteClasses(classOf);
+        int classCount = representative.length;
+
+        // subset construction, a DFA state is the epsilon closure of a set of NFA states
+        HashMap<BitSet, Integer> numbers = new HashMap<>();
+        ArrayList<BitSet> sets = new ArrayList<>();
+        ArrayList<int[]> rows = new ArrayList<>();
+        BitSet first = new BitSet(nfaCount);
+        for (int s : starts)
+            first.set(s);
+        closure(first);
+        numbers.put(first, 0);
+        sets.add(first);
+        for (int state = 0; state < sets.size(); state++) {
+            BitSet set = sets.get(state);
+            int[] row = new int[classCount];
+            for (int c = 0; c < classCount; c++) {
+                BitSet target = new BitSet(nfaCount);
+                for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1))
+                    if (byteSets.get(s) != null && byteSets.get(s).get(representative[c]))
+                        target.set(byteNext[s]);
+                if (target.isEmpty()) {
+                    row[c] = -1;
+                    continue;
+                }
+                closure(target);
+                Integer number = numbers.get(target);
+                if (number == null) {
+                    number = sets.size();
+                    numbers.put(target, number);
+                    sets.add(target);
+                }
+                row[c] = number;
+            }
+            rows.add(row);
+        }
+        int[] accept = new int[sets.size()];
+        for (int state = 0; state < sets.size(); state++) {
+            int rank = -1;
+            BitSet set = sets.get(state);
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1))
+                if (rankOf[s] != -1 && (rank == -1 || rankOf[s] < rank))
+                    rank = rankOf[s];
+            accept[state] = rank == -1 ? -1 : tokens.get(rank);
+        }
+        if (accept[0] != -1)
+            throw new IllegalArgumentException("a token matches empty text: "
+                    + (accept[0] == Lexer.IGNORE ? Lexer.IGNORE_DECLARATION : grammar.names[accept[0]]));
+
+        Lexer lexer = minimize(rows.toArray(new int[0][]), accept, classOf, classCount);
+        metrics.stop("lexer.generate", start);
+        metrics.add("lexer.nfaStates", nfaCount);
+        metrics.add("lexer.dfaStates", sets.size());
+        metrics.add("lexer.states", lexer.stateCount());
+        metrics.add("lexer.classes", classCount);
+        return lexer;
+    }
+
+    /**
+     * splits bytes into classes that every edge of NFA either has all of or none of
+     * e.x: [a-z] and [0-9a-f] make {a-f}, {g-z}, {0-9} and all the other bytes
+     * @return class -> a byte of that class
+     */
+    private int[] byteClasses(int[] classOf) {
+        int classCount = 1;
+        for (BitSet set : new HashSet<>(byteSets)) {
+            if (set == null)
+                continue;
+            HashMap<Integer, Integer> split = new HashMap<>();      // old class * 2 + (in set) -> new class
+            for (int b = 0; b < 256; b++) {
+                int key = classOf[b] * 2 + (set.get(b) ? 1 : 0);
+                Integer id = split.get(key);
+                if (id == null) {
+                    id = split.size();
+                    split.put(key, id);
+                }
+                classOf[b] = id;
+            }
+            classCount = split.size();
+        }
+        int[] representative = new int[classCount];
+        for (int b = 255; b >= 0; b--)
+            representative[classOf[b]] = b;
+        return representative;
+    }
+
+    private void closure(BitSet set) {
+        int[] stack = new int[nfaCount];
+        int top = 0;
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1))
+            stack[top++] = s;
+        while (top > 0) {
+            int s = stack[--top];
+            for (int next : new int[]{epsilon1[s], epsilon2[s]})
+                if (next != -1 && !set.get(next)) {
+                    set.set(next);
+                    stack[top++] = next;
+                }
+        }
+    }
+
+    /**
+     * merges states that accept the same token and go to the same classes on every byte class
+     * like TableOptimizer, classes are split until they don't change, the start state stays 0
+     */
+    private Lexer minimize(int[][] rows, int[] accept, int[] classOf, int classCount) {
+        int count = rows.length;
+        int[] group = new int[count];
+        HashMap<Integer, Integer> initial = new HashMap<>();
+        for (int state = 0; state < count; state++) {
+            Integer id = initial.get(accept[state]);
+            if (id == null) {
+                id = initial.size();
+                initial.put(accept[state], id);
+            }
+            group[state] = id;
+        }
+        int groupCount = initial.size();
+        while (true) {
+            HashMap<Signature, Integer> groups = new HashMap<>();
+            int[] next = new int[count];
+            for (int state = 0; state < count; state++) {
+                Signature signature = new Signature(group[state], rows[state], group);
+                Integer id = groups.get(signature);
+                if (id == null) {
+                    id = groups.size();
+                    groups.put(signature, id);
+                }
+                next[state] = id;
+            }
+            group = next;
+            if (groups.size() == groupCount)
+                break;
+            groupCount = groups.size();
+        }
+
+        // state 0 is in group 0, because groups are numbered in order of their first state
+        int[] table = new int[groupCount * classCount];
+        int[] accepts = new int[groupCount];
+        boolean[] filled = new boolean[groupCount];
+        for (int state = 0; state < count; state++) {
+            int g = group[state];
+            if (filled[g])
+                continue;
+            filled[g] = true;
+            accepts[g] = accept[state];
+            for (int c = 0; c < classCount; c++)
+                table[g * classCount + c] = rows[state][c] == -1 ? -1 : group[rows[state][c]];
+        }
+        return new Lexer(grammar, Arrays.copyOf(classOf, 256), classCount, table, accepts);
+    }
+
+    private static class Signature {
+        // group of a state and groups of its targets
+        final int[] values;
+        final int hash;
+
+        Signature(int group, int[] row, int[] groups) {
+            values = new int[1 + row.length];
+            values[0] = group;
+            for (int c = 0; c < row.length; c++)
+                values[1 + c] = row[c] == -1 ? -1 : groups[row[c]];
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(values, ((Signature) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // regex parser, every method returns a fragment of NFA: {first state, last state}
+    // the last state of a fragment doesn't have any edge yet
+
+    private int[] alternation() {
+        int[] fragment = concatenation();
+        while (position < regex.length() && regex.charAt(position) == '|') {
+            position++;
+            int[] other = concatenation();
+            int start = newState(), end = newState();
+            epsilon(start, fragment[0]);
+            epsilon(start, other[0]);
+            epsilon(fragment[1], end);
+            epsilon(other[1], end);
+            fragment = new int[]{start, end};
+        }
+        return fragment;
+    }
+
+    private int[] concatenation() {
+        int start = newState();
+        int[] fragment = {start, start};
+        while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+            int[] next = repetition();
+            epsilon(fragment[1], next[0]);
+            fragment[1] = next[1];
+        }
+        return fragment;
+    }
+
+    private int[] repetition() {
+        int[] fragment = atom();
+        while (position < regex.length() && "*+?".indexOf(regex.charAt(position)) != -1) {
+            char operator = regex.charAt(position++);
+            int start = newState(), end = newState();
+            epsilon(start, fragment[0]);
+            if (operator != '+')
+                epsilon(start, end);
+            if (operator != '?')
+                epsilon(fragment[1], fragment[0]);
+            epsilon(fragment[1], end);
+            fragment = new int[]{start, end};
+        }
+        return fragment;
+    }
+
+    private int[] atom() {
+        char c = regex.charAt(position);
+        if (c == '(') {
+            position++;
+            int[] fragment = alternation();
+            if (position == regex.length() || regex.charAt(position) != ')')
+                throw error("')' is missing");
+            position++;
+            return fragment;
+        }
+        if ("*+?)".indexOf(c) != -1)
+            throw error("nothing to repeat before '" + c + "'");
+        int start = newState();
+        BitSet set;
+        if (c == '[') {
+            position++;
+            set = charClass();
+        } else if (c == '.') {
+            position++;
+            set = new BitSet(256);
+            set.set(0, 256);
+            set.clear('\n');
+        } else if (c == '\\') {
+            position++;
+            set = escape();
+        } else {
+            // a char outside ASCII is the sequence of its UTF-8 bytes
+            int codePoint = regex.codePointAt(position);
+            position += Character.charCount(codePoint);
+            int end = start;
+            for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8))
+                end = byteEdge(end, b & 0xff);
+            return new int[]{start, end};
+        }
+        int end = newState();
+        edge(start, set, end);
+        return new int[]{start, end};
+    }
+
+    /**
+     * parses what is after '[' until ']'
+     */
+    private BitSet charClass() {
+        BitSet set = new BitSet(256);
+        boolean negated = position < regex.length() && regex.charAt(position) == '^';
+        if (negated)
+            position++;
+        while (true) {
+            if (position == regex.length())
+                throw error("']' is missing");
+            char c = regex.charAt(position++);
+            if (c == ']')
+                break;
+            if (c == '\\') {
+                BitSet escaped = escape();
+                if (escaped.cardinality() > 1) {
+                    set.or(escaped);
+                    continue;
+                }
+                c = (char) escaped.nextSetBit(0);
+            }
+            char last = c;
+            if (position + 1 < regex.length() && regex.charAt(position) == '-' && regex.charAt(position + 1) != ']') {
+                position++;
+                last = regex.charAt(position++);
+                if (last == '\\')
+                    last = (char) escape().nextSetBit(0);
+            }
+            if (last > 127)
+                throw error("only ASCII chars can be in [ ]");
+            if (last < c)
+                throw error("range " + c + "-" + last + " is empty");
+            set.set(c, last + 1);
+        }
+        if (negated)
+            set.flip(0, 256);
+        return set;
+    }
+
+    /**
+     * parses what is after '\'
+     */
+    private BitSet escape() {
+        if (position == regex.length())
+            throw error("'\\' at the end");
+        char c = regex.charAt(position++);
+        BitSet set = new BitSet(256);
+        switch (c) {
+            case 'n': set.set('\n'); break;
+            case 'r': set.set('\r'); break;
+            case 't': set.set('\t'); break;
+            case 'f': set.set('\f'); break;
+            case 'x':
+                if (position + 2 > regex.length())
+                    throw error("\\x needs two hex digits");
+                set.set(Integer.parseInt(regex.substring(position, position + 2), 16));
+                position += 2;
+                break;
+            case 'd': case 'D':
+                set.set('0', '9' + 1);
+                break;
+            case 'w': case 'W':
+                set.set('a', 'z' + 1);
+                set.set('A', 'Z' + 1);
+                set.set('0', '9' + 1);
+                set.set('_');
+                break;
+            case 's': case 'S':
+                set.set(' ');
+                set.set('\t');
+                set.set('\n');
+                set.set('\r');
+                set.set('\f');
+                set.set(0x0B);
+                break;
+            default:
+                if (c > 127)
+                    throw error("only ASCII chars can be escaped");
+                set.set(c);
+        }
+        if (c == 'D' || c == 'W' || c == 'S')
+            set.flip(0, 256);
+        return set;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position + " in regex " + regex);
+    }
+
+    private int newState() {
+        if (nfaCount == byteNext.length) {
+            int length = nfaCount * 2;
+            byteNext = Arrays.copyOf(byteNext, length);
+            epsilon1 = Arrays.copyOf(epsilon1, length);
+            epsilon2 = Arrays.copyOf(epsilon2, length);
+            rankOf = Arrays.copyOf(rankOf, length);
+        }
+        byteSets.add(null);
+        byteNext[nfaCount] = -1;
+        epsilon1[nfaCount] = -1;
+        epsilon2[nfaCount] = -1;
+        rankOf[nfaCount] = -1;
+        return nfaCount++;
+    }
+
+    private void epsilon(int from, int to) {
+        if (epsilon1[from] == -1)
+            epsilon1[from] = to;
+        else
+            epsilon2[from] = to;
+    }
+
+    private void edge(int from, BitSet set, int to) {
+        byteSets.set(from, set);
+        byteNext[from] = to;
+    }
+
+    /**
+     * @return a new state that is after (@param)b from (@param)from
+     */
+    private int byteEdge(int from, int b) {
+        BitSet set = new BitSet(256);
+        set.set(b);
+        int to = newState();
+        edge(from, set, to);
+        return to;
+    }
+}
@@ -0,0 +1,30 @@
+package com.company;
+
+import java.util.List;
+
+
+public class ListTokenSource implements TokenSource {
+    // tokens that are already in memory, e.x: tokens of a request or benchmark input
+    // reset() starts it again from the first token, so the same tokens can be parsed many times
+    private final List<Token> tokens;
+    private int index;
+
+    public ListTokenSource(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public Token next() {
+        return index < tokens.size() ? tokens.get(index++) : null;
+    }
+
+    @Override
+    public Token peek() {
+        return index < tokens.size() ? tokens.get(index) : null;
+    }
+
+    public ListTokenSource reset() {
+        index = 0;
+        return this;
+    }
+}
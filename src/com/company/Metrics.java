@@ -0,0 +1,118 @@
+package com.company;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+public class Metrics implements MetricsMXBean {
+    // counters, timers and maximums of table generation and parsing, any thread can update them
+    // names are dotted paths e.x: "dfa.lr1.states", "table.slr1.conflicts", "parse.lalr1.shifts"
+    //      timers are nanoseconds and their names end with ".ns"
+    //      maximums keep the biggest value they are given e.x: "parse.lr1.maxStackDepth"
+    // NONE ignores everything, it's the default of generators and parsers
+    public static final Metrics NONE = new Metrics(false);
+
+    private final boolean enabled;
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> maximums = new ConcurrentHashMap<>();
+
+    public Metrics() {
+        this(true);
+    }
+
+    private Metrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public void add(String name, long value) {
+        if (enabled)
+            counters.computeIfAbsent(name, k -> new LongAdder()).add(value);
+    }
+
+    public void max(String name, long value) {
+        if (enabled)
+            maximums.computeIfAbsent(name, k -> new AtomicLong(Long.MIN_VALUE)).accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return start time of a timer, it's given to stop()
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * adds the time since start to timer (@param)name
+     */
+    public void stop(String name, long start) {
+        if (enabled)
+            add(name + ".ns", System.nanoTime() - start);
+    }
+
+    @Override
+    public Map<String, Long> getValues() {
+        TreeMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet())
+            values.put(entry.getKey(), entry.getValue().sum());
+        for (Map.Entry<String, AtomicLong> entry : maximums.entrySet())
+            values.put(entry.getKey(), entry.getValue().get());
+        // e.x: "parse.lr1.tokensPerSecond" from "parse.lr1.tokens" and "parse.lr1.ns"
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            String name = entry.getKey();
+            if (name.endsWith(".tokens")) {
+                String prefix = name.substring(0, name.length() - ".tokens".length());
+                LongAdder time = counters.get(prefix + ".ns");
+                if (time != null && time.sum() > 0)
+                    values.put(prefix + ".tokensPerSecond", entry.getValue().sum() * 1000000000L / time.sum());
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        counters.clear();
+        maximums.clear();
+    }
+
+    /**
+     * registers this as com.company:type=Metrics in platform MBean server, so JConsole and JMX clients can see it
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.company:type=Metrics");
+        if (server.isRegistered(name))
+            server.unregisterMBean(name);
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * writes all values in a JSON object, one "name": value in each line and sorted by name
+     */
+    public void writeSummary(String fileName) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+            writer.write("{\n");
+            int i = 0;
+            Map<String, Long> values = getValues();
+            for (Map.Entry<String, Long> entry : values.entrySet()) {
+                writer.write(String.format("  \"%s\": %d%s\n", entry.getKey(), entry.getValue()
+                        , ++i < values.size() ? "," : ""));
+            }
+            writer.write("}\n");
+        }
+    }
+}
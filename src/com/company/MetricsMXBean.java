@@ -0,0 +1,15 @@
+package com.company;
+
+import java.util.Map;
+
+
+public interface MetricsMXBean {
+    // what Metrics shows through JMX, under com.company:type=Metrics
+
+    /**
+     * @return all counters, timers (in nanoseconds) and maximums by name
+     */
+    Map<String, Long> getValues();
+
+    void reset();
+}
@@ -0,0 +1,36 @@
+package com.company;
+
+
+public interface ParseListener {
+    // semantic events of a parse, so a consumer (evaluator, indexer, validator) can work in a single pass without a tree
+    //      LR: onShift for every token and onReduce for every production after its right hand,
+    //          ACCEPT is reported as the reduce of the production of start symbol and then onAccept
+    //      LL: onPredict before right hand of a production and onMatch for every token ("$" too), and also
+    //          onShift and onReduce in the same order as LR, a production is reduced when its right hand is done
+    // a lexeme is only valid during the call, it may be a Lexeme that is reused for every token
+    // every unit reduction is reported unless tables are made with TableGenerator.bypassUnitReductions(true)
+    // SemanticActions is a listener with an action for every production and a stack of values
+    ParseListener NONE = new ParseListener() {
+    };
+
+    default void onStart() {
+    }
+
+    default void onShift(int terminal, CharSequence lexeme) {
+    }
+
+    /**
+     * @param rhsLength number of symbols that are popped
+     */
+    default void onReduce(int production, int rhsLength) {
+    }
+
+    default void onPredict(int production) {
+    }
+
+    default void onMatch(int terminal, CharSequence lexeme) {
+    }
+
+    default void onAccept() {
+    }
+}
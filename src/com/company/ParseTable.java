@@ -0,0 +1,253 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+
+public class ParseTable {
+    // LR(0), SLR(1), LALR(1) or LR(1) table packed in int arrays
+    // an action is encoded in a single int: low 2 bits are its kind and the rest is state or production number
+    // e.x: "s12" is (12 << 2) | SHIFT and "r3" is (3 << 2) | REDUCE
+    //      "acc0" is (0 << 2) | ACCEPT, it reduces production 0 of start symbol on "$" and accepts if the stack
+    //      is empty after that, otherwise it's an ordinary reduce
+    //
+    // rows are stored with row displacement (comb vector) like yacc tables:
+    //      entry of (state, column) is at index base[state] + column if check[that index] == column
+    //      otherwise it's the default of that state
+    // only identical rows have the same base, so they share their entries
+    // when it's not compressed every row gets its own stretch of the arrays, which is the plain matrix
+    // rows of states with conflicts never get a default reduction, GLRParser forks on their cells and a default
+    // would make it reduce on tokens that the state has no action for
+    static final int ERROR = 0;
+    static final int SHIFT = 1;
+    static final int REDUCE = 2;
+    static final int ACCEPT = 3;
+    static final String EXPLICIT_ERROR = "err";     // cell of a nonassoc operator, it isn't replaced by a default reduction
+
+    final int stateCount;
+    final int terminalCount;
+    final int nonTerminalCount;
+
+    // ACTION part, columns are terminal ids
+    final int[] actionBase;
+    final int[] actionCheck;
+    final int[] actionNext;
+    final int[] defaultAction;      // ERROR or a default reduction
+
+    // GOTO part, columns are nonTerminal id - terminalCount, values are state numbers
+    final int[] gotoBase;
+    final int[] gotoCheck;
+    final int[] gotoNext;
+
+    ParseTable(int stateCount, int terminalCount, int nonTerminalCount, int[] actionBase, int[] actionCheck
+            , int[] actionNext, int[] defaultAction, int[] gotoBase, int[] gotoCheck, int[] gotoNext) {
+        this.stateCount = stateCount;
+        this.terminalCount = terminalCount;
+        this.nonTerminalCount = nonTerminalCount;
+        this.actionBase = actionBase;
+        this.actionCheck = actionCheck;
+        this.actionNext = actionNext;
+        this.defaultAction = defaultAction;
+        this.gotoBase = gotoBase;
+        this.gotoCheck = gotoCheck;
+        this.gotoNext = gotoNext;
+    }
+
+    static int encode(int kind, int value) {
+        return (value << 2) | kind;
+    }
+
+    static int kind(int action) {
+        return action & 3;
+    }
+
+    static int value(int action) {
+        return action >>> 2;
+    }
+
+    static ParseTable pack(String[][] table, Grammar grammar, boolean compress) {
+        return pack(table, grammar, compress, null);
+    }
+
+    /**
+     * @param table a table created by createTable
+     * @param compress if true rows are overlapped and each state reduces by its most common reduction
+     *                 instead of reporting error, so an error may be found after some more reductions (like yacc)
+     * @param optimizer optimizes rows before they are packed or null
+     */
+    static ParseTable pack(String[][] table, Grammar grammar, boolean compress, TableOptimizer optimizer) {
+        return pack(table, grammar, compress, optimizer, new BitSet());
+    }
+
+    /**
+     * @param exactRows states whose rows keep an error in every empty cell even if it's compressed
+     */
+    static ParseTable pack(String[][] table, Grammar grammar, boolean compress, TableOptimizer optimizer
+            , BitSet exactRows) {
+        int terminalCount = grammar.terminalCount;
+        int nonTerminalCount = grammar.symbolCount() - grammar.terminalCount;
+        int[][] actionPart = new int[table.length][terminalCount];
+        int[][] gotoPart = new int[table.length][nonTerminalCount];
+        int[] defaultAction = new int[table.length];
+        for (int i = 0; i < table.length; i++) {
+            for (int t = 0; t < terminalCount; t++)
+                actionPart[i][t] = parseAction(table[i][t]);
+            for (int n = 0; n < nonTerminalCount; n++)
+                gotoPart[i][n] = table[i][terminalCount + n] == null ? -1 : Integer.parseInt(table[i][terminalCount + n]);
+        }
+        if (optimizer != null)
+            optimizer.optimize(actionPart, gotoPart);
+        for (int i = 0; i < table.length; i++) {
+            if (compress && !exactRows.get(i)) {
+                // the most common reduction of this row becomes its default
+                int best = ERROR, bestCount = 0;
+                for (int t = 0; t < terminalCount; t++) {
+                    int action = actionPart[i][t];
+                    if (kind(action) != REDUCE || action == best)
+                        continue;
+                    int count = 0;
+                    for (int u = 0; u < terminalCount; u++)
+                        if (actionPart[i][u] == action)
+                            count++;
+                    if (count > bestCount) {
+                        best = action;
+                        bestCount = count;
+                    }
+                }
+                defaultAction[i] = best;
+                if (best != ERROR)
+                    for (int t = 0; t < terminalCount; t++)
+                        if (actionPart[i][t] == best)
+                            actionPart[i][t] = ERROR;
+            }
+        }
+        int[][] action = comb(actionPart, ERROR, compress);
+        int[][] goTo = comb(gotoPart, -1, compress);
+        return new ParseTable(table.length, terminalCount, nonTerminalCount, action[0], action[1], action[2]
+                , defaultAction, goTo[0], goTo[1], goTo[2]);
+    }
+
+    static int parseAction(String element) {
+        if (element == null)
+            return ERROR;
+        else if (element.startsWith("acc"))
+            return encode(ACCEPT, Integer.parseInt(element.substring(3)));
+        else if (element.equals(EXPLICIT_ERROR))
+            return encode(ERROR, 1);
+        else if (element.startsWith("s"))
+            return encode(SHIFT, Integer.parseInt(element.substring(1)));
+        else if (element.startsWith("r"))
+            return encode(REDUCE, Integer.parseInt(element.substring(1)));
+        else
+            return ERROR;
+    }
+
+    /**
+     * places rows in a single vector, entries equal to (@param)empty are not stored
+     * @return {base, check, next}
+     */
+    private static int[][] comb(int[][] rows, int empty, boolean compress) {
+        int columns = rows.length == 0 ? 0 : rows[0].length;
+        int[] base = new int[rows.length];
+        int[] check = new int[Math.max(16, columns)];
+        int[] next = new int[check.length];
+        Arrays.fill(check, -1);
+        int size = 0;
+
+        // rows with more entries are placed first, they are harder to fit
+        Integer[] order = new Integer[rows.length];
+        int[] entries = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            order[i] = i;
+            for (int value : rows[i])
+                if (value != empty)
+                    entries[i]++;
+        }
+        if (compress)
+            Arrays.sort(order, (a, b) -> entries[b] - entries[a]);
+
+        int lowestFree = 0;         // every slot before this index is taken
+        BitSet usedBases = new BitSet();
+        HashMap<Integer, ArrayList<Integer>> placed = new HashMap<>();    // hash of a row -> rows that are placed
+        for (int row : order) {
+            if (compress) {
+                // an identical row is already placed, so this one just uses its base
+                int hash = Arrays.hashCode(rows[row]);
+                int same = -1;
+                for (int other : placed.getOrDefault(hash, new ArrayList<>()))
+                    if (Arrays.equals(rows[other], rows[row]))
+                        same = other;
+                if (same != -1) {
+                    base[row] = base[same];
+                    continue;
+                }
+                placed.computeIfAbsent(hash, k -> new ArrayList<>()).add(row);
+            }
+            int first = 0;
+            while (first < columns && rows[row][first] == empty)
+                first++;
+            int b = compress ? Math.max(0, lowestFree - first) : size;
+            // check holds the column, so two different rows can't have the same base
+            while (usedBases.get(b) || !fits(rows[row], empty, check, b))
+                b++;
+            base[row] = b;
+            usedBases.set(b);
+            if (b + columns > check.length) {
+                int length = Math.max(check.length * 2, b + columns);
+                int old = check.length;
+                check = Arrays.copyOf(check, length);
+                next = Arrays.copyOf(next, length);
+                Arrays.fill(check, old, length, -1);
+            }
+            for (int c = 0; c < columns; c++)
+                if (rows[row][c] != empty || !compress) {
+                    check[b + c] = c;
+                    next[b + c] = rows[row][c];
+                }
+            size = Math.max(size, b + columns);
+            while (lowestFree < check.length && check[lowestFree] != -1)
+                lowestFree++;
+        }
+        // slots after size are never used, lookups check the index against length
+        return new int[][]{base, Arrays.copyOf(check, Math.max(size, 1)), Arrays.copyOf(next, Math.max(size, 1))};
+    }
+
+    private static boolean fits(int[] row, int empty, int[] check, int base) {
+        for (int c = 0; c < row.length; c++)
+            if (row[c] != empty && base + c < check.length && check[base + c] != -1)
+                return false;
+        return true;
+    }
+
+    /**
+     * @param terminal terminal id
+     * @return encoded action
+     */
+    int action(int state, int terminal) {
+        int index = actionBase[state] + terminal;
+        if (index < actionCheck.length && actionCheck[index] == terminal)
+            return actionNext[index];
+        return defaultAction[state];
+    }
+
+    /**
+     * @param nonTerminal nonTerminal id
+     * @return next state or -1 if there isn't any
+     */
+    int goTo(int state, int nonTerminal) {
+        int index = gotoBase[state] + nonTerminal - terminalCount;
+        if (index < gotoCheck.length && gotoCheck[index] == nonTerminal - terminalCount)
+            return gotoNext[index];
+        return -1;
+    }
+
+    /**
+     * @return size of table arrays in bytes
+     */
+    int bytes() {
+        return 4 * (actionBase.length + actionCheck.length + actionNext.length + defaultAction.length
+                + gotoBase.length + gotoCheck.length + gotoNext.length);
+    }
+}
@@ -0,0 +1,68 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+public class ParseTables {
+    // everything parsers need from a grammar: compiled grammar, LR tables, LL(1) table and their conflicts
+    // it's never changed after it's created, so any number of threads can parse with the same instance
+    // each parse needs its own parser (lrParser() or llParser()) that holds the stacks of that parse
+    static final String LR0 = "lr0";
+    static final String SLR1 = "slr1";
+    static final String LALR1 = "lalr1";
+    static final String LR1 = "lr1";
+    static final String LL1 = "ll1";
+
+    final Grammar grammar;
+    final Map<String, ParseTable> lrTables;                     // 'lr0', 'slr1', 'lalr1' or 'lr1' -> table
+    final int[][] llTable;                                      // nonTerminal id - terminalCount -> terminal id -> production or -1
+    final Map<String, ArrayList<Conflict>> conflicts;           // 'll1' or type of LR table -> its conflicts
+    final Map<String, ArrayList<Conflict>> resolved;            // type of LR table -> conflicts that precedence resolved
+
+    public ParseTables(Grammar grammar, LinkedHashMap<String, ParseTable> lrTables, int[][] llTable
+            , LinkedHashMap<String, ArrayList<Conflict>> conflicts, LinkedHashMap<String, ArrayList<Conflict>> resolved) {
+        this.grammar = grammar;
+        this.lrTables = Collections.unmodifiableMap(lrTables);
+        this.llTable = llTable;
+        this.conflicts = Collections.unmodifiableMap(conflicts);
+        this.resolved = Collections.unmodifiableMap(resolved);
+    }
+
+    /**
+     * @param type can be 'lr0', 'slr1', 'lalr1', 'lr1'
+     * @return a new parser that uses the table of (@param)type
+     */
+    public LRParser lrParser(String type) {
+        return new LRParser(grammar, lrTables.get(type), type);
+    }
+
+    /**
+     * @param type can be 'lr0', 'slr1', 'lalr1', 'lr1'
+     * @return a new GLR parser that takes every action of conflicting cells of the table of (@param)type
+     */
+    public GLRParser glrParser(String type) {
+        return new GLRParser(grammar, lrTables.get(type), conflicts.get(type), type);
+    }
+
+    /**
+     * @param type can be 'lr0', 'slr1', 'lalr1', 'lr1'
+     * @return a new parser of an edited document that uses the table of (@param)type
+     */
+    public IncrementalParser incrementalParser(String type) {
+        return new IncrementalParser(grammar, lrTables.get(type), type);
+    }
+
+    public LLParser llParser() {
+        return new LLParser(grammar, llTable);
+    }
+
+    /**
+     * @param type can be 'll1', 'lr0', 'slr1', 'lalr1', 'lr1'
+     */
+    public boolean hasConflict(String type) {
+        return !conflicts.get(type).isEmpty();
+    }
+}
@@ -0,0 +1,33 @@
+package com.company;
+
+
+public interface ParseTrace {
+    // receives every step of a parse, parsers don't call anything when their trace is NONE
+    //      START   a parse begins, states is null for LL(1)
+    //      SHIFT   LR: symbol (terminal) is shifted
+    //      REDUCE  LR: production is reduced to symbol (its left hand)
+    //      PREDICT LL: symbol (nonTerminal on top of stack) is replaced with right hand of production
+    //      MATCH   LL: symbol (terminal on top of stack) is matched with token
+    //      ACCEPT  input is accepted
+    //      ERROR   input is rejected, for LL if symbol is a nonTerminal there wasn't any production for token
+    // stacks are the arrays of parser and are only valid during the call
+    //      LR: stacks after the step, states[top] is current state
+    //      LL: symbol stack before the step, states is null
+    int START = 0;
+    int SHIFT = 1;
+    int REDUCE = 2;
+    int PREDICT = 3;
+    int MATCH = 4;
+    int ACCEPT = 5;
+    int ERROR = 6;
+
+    ParseTrace NONE = (kind, symbol, production, token, states, symbols, top) -> {
+    };
+
+    /**
+     * @param symbol symbol id or -1
+     * @param production production number or -1
+     * @param token current token, null if input is finished
+     */
+    void step(int kind, int symbol, int production, Token token, int[] states, int[] symbols, int top);
+}
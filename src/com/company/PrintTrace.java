@@ -0,0 +1,55 @@
+package com.company;
+
+import java.io.PrintStream;
+
+
+public class PrintTrace implements ParseTrace {
+    // human readable trace, the stacks parsers printed before traces were added
+    //      LR: stacks after every shift and reduce
+    //      LL: stack and token before every step and the production that is predicted
+    private final Grammar grammar;
+    private final PrintStream out;
+
+    public PrintTrace(Grammar grammar, PrintStream out) {
+        this.grammar = grammar;
+        this.out = out;
+    }
+
+    @Override
+    public void step(int kind, int symbol, int production, Token token, int[] states, int[] symbols, int top) {
+        if (states != null) {
+            if (kind == SHIFT || kind == REDUCE)
+                printStacks(states, symbols, top);
+        } else if (kind == PREDICT || kind == MATCH || (kind == ERROR && token != null)) {
+            printStack(symbols, top);
+            out.println("Token: " + token.token);
+            if (symbol != -1 && !grammar.isTerminal(symbol) && kind != MATCH)
+                out.println("Rule:  " + (production == -1 ? null : grammar.rules[production]));
+        }
+    }
+
+    private void printStacks(int[] states, int[] symbols, int top) {
+        StringBuilder nums = new StringBuilder("numStack:   [");
+        StringBuilder names = new StringBuilder("tokenStack: [");
+        for (int i = 0; i <= top; i++) {
+            if (i > 0) {
+                nums.append(", ");
+                names.append(", ");
+            }
+            nums.append(states[i]);
+            names.append(grammar.names[symbols[i]]);
+        }
+        out.println(nums.append("]"));
+        out.println(names.append("]").append('\n'));
+    }
+
+    private void printStack(int[] symbols, int top) {
+        StringBuilder builder = new StringBuilder("\nStack: [");
+        for (int i = 0; i <= top; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(grammar.names[symbols[i]]);
+        }
+        out.println(builder.append("]"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+
+
+public class ReusedStates {
+    // states of a state machine of the previous grammar that are copied into the state machine of the edited grammar
+    // a state is copied only if its closure can't be changed by the edit:
+    //      none of its items belongs to a changed nonTerminal and no changed nonTerminal is after '@'
+    //      for LR(1) no symbol after '@' has a changed first set either, because they make lookaheads of closure
+    // items are matched by rule text and symbol names, since ids may be different in the new grammar
+    final HashMap<KernelKey, ArrayList<Item>> itemSets;     // kernel -> item set of states that are copied
+    final HashMap<KernelKey, Integer> numbers;              // kernel -> state number of all previous states
+
+    /**
+     * @param changed names of nonTerminals whose productions are changed, for LR(1) it also has the symbols
+     *                whose first set or nullable is changed
+     */
+    ReusedStates(Grammar oldGrammar, ArrayList<State> oldDfa, Grammar grammar, HashSet<String> changed, int lr0_1) {
+        itemSets = new HashMap<>();
+        numbers = new HashMap<>();
+        HashMap<String, Integer> productions = new HashMap<>();
+        for (int p = grammar.productionCount() - 1; p >= 0; p--)
+            productions.put(grammar.rules[p], p);
+
+        for (State state : oldDfa) {
+            ArrayList<Item> kernel = new ArrayList<>();
+            ArrayList<Item> itemSet = new ArrayList<>();
+            boolean copy = true;
+            for (Item item : state.itemSet) {
+                Item newItem = translate(item, oldGrammar, grammar, productions);
+                boolean isKernel = Grammar.dot(item.core) > 0 || item.ruleNum == 0;
+                if (newItem == null) {
+                    if (isKernel)
+                        // this state doesn't exist in new state machine
+                        break;
+                    copy = false;
+                    continue;
+                }
+                if (isKernel)
+                    kernel.add(newItem);
+                itemSet.add(newItem);
+                if (copy && !unchanged(item, oldGrammar, changed, lr0_1))
+                    copy = false;
+            }
+            if (kernel.size() != countKernel(state))
+                continue;
+            KernelKey key = KernelKey.of(kernel, lr0_1);
+            numbers.put(key, state.stateNum);
+            if (copy)
+                itemSets.put(key, itemSet);
+        }
+    }
+
+    /**
+     * @return names of nonTerminals that some of their productions are added or removed
+     */
+    static HashSet<String> changedNonTerminals(Grammar oldGrammar, Grammar grammar) {
+        HashSet<String> oldRules = new HashSet<>(), rules = new HashSet<>();
+        for (String rule : oldGrammar.rules)
+            oldRules.add(rule);
+        for (String rule : grammar.rules)
+            rules.add(rule);
+        HashSet<String> changed = new HashSet<>();
+        for (int p = 0; p < oldGrammar.productionCount(); p++)
+            if (!rules.contains(oldGrammar.rules[p]))
+                changed.add(oldGrammar.names[oldGrammar.lhs[p]]);
+        for (int p = 0; p < grammar.productionCount(); p++)
+            if (!oldRules.contains(grammar.rules[p]))
+                changed.add(grammar.names[grammar.lhs[p]]);
+        return changed;
+    }
+
+    /**
+     * @return names of symbols whose first set or nullable is different in two grammars
+     */
+    static HashSet<String> changedFirst(FirstFollow oldSets, FirstFollow sets) {
+        HashSet<String> changed = new HashSet<>();
+        for (int s = 0; s < oldSets.grammar.symbolCount(); s++) {
+            String name = oldSets.grammar.names[s];
+            int id = sets.grammar.id(name);
+            if (id == -1 || oldSets.nullable.get(s) != sets.nullable.get(id)
+                    || !sets.toString(sets.first[id], false).equals(oldSets.toString(oldSets.first[s], false)))
+                changed.add(name);
+        }
+        for (int s = 0; s < sets.grammar.symbolCount(); s++)
+            if (oldSets.grammar.id(sets.grammar.names[s]) == -1)
+                changed.add(sets.grammar.names[s]);
+        return changed;
+    }
+
+    private static boolean unchanged(Item item, Grammar oldGrammar, HashSet<String> changed, int lr0_1) {
+        if (changed.contains(oldGrammar.names[oldGrammar.lhs[item.ruleNum]]))
+            return false;
+        int[] right = oldGrammar.rhs[item.ruleNum];
+        // symbol after '@' decides items of closure, the symbols after it decide lookaheads of them
+        int end = lr0_1 == 1 ? right.length : Math.min(right.length, Grammar.dot(item.core) + 1);
+        for (int i = Grammar.dot(item.core); i < end; i++)
+            if (changed.contains(oldGrammar.names[right[i]]))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return the same item in new grammar or null if its rule or one of its lookaheads is not there
+     */
+    private static Item translate(Item item, Grammar oldGrammar, Grammar grammar, HashMap<String, Integer> productions) {
+        Integer production = productions.get(oldGrammar.rules[item.ruleNum]);
+        if (production == null)
+            return null;
+        BitSet lookahead = new BitSet();
+        for (int t = item.lookahead.nextSetBit(0); t >= 0; t = item.lookahead.nextSetBit(t + 1)) {
+            int id = grammar.id(oldGrammar.names[t]);
+            if (id == -1 || !grammar.isTerminal(id))
+                return null;
+            lookahead.set(id);
+        }
+        return new Item(grammar, Grammar.item(production, Grammar.dot(item.core)), lookahead);
+    }
+
+    private static int countKernel(State state) {
+        int count = 0;
+        for (Item item : state.itemSet)
+            if (Grammar.dot(item.core) > 0 || item.ruleNum == 0)
+                count++;
+        return count;
+    }
+}
@@ -0,0 +1,114 @@
+package com.company;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+public class RingBuffer {
+    // bounded lock-free queue of fixed size int records between one producer thread and one consumer thread
+    // records are written in place in one int array, nothing is allocated for them
+    //      producer: claim() -> write recordSize ints from the returned index -> commit(), flush() at the end
+    //      consumer: next() -> read recordSize ints from the returned index, they are valid until next call
+    // indexes are published in batches with lazySet (a release store) to keep the two threads off each other's
+    // cache lines, and both sides publish everything before they wait, so they never wait for each other
+    // a full buffer makes the producer wait (back-pressure), it spins, then yields, then parks longer and longer
+    private final int[] data;
+    private final int capacity;             // records, a power of 2
+    private final int recordSize;
+    private final int batch;                // a power of 2
+    private final AtomicLong written = new AtomicLong();       // records that the consumer can read
+    private final AtomicLong read = new AtomicLong();          // records that the producer can write over
+    private volatile boolean closed;
+
+    // only used by producer
+    private long writeIndex, readLimit;
+    int fullWaits;
+    // only used by consumer
+    private long readIndex, writeLimit;
+    int emptyWaits;
+
+    /**
+     * @param capacity number of records, it's rounded up to a power of 2
+     * @param batch indexes are published after this many records, it's rounded up to a power of 2
+     */
+    public RingBuffer(int capacity, int recordSize, int batch) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.batch = Math.min(this.capacity / 2, Integer.highestOneBit(Math.max(1, batch) * 2 - 1));
+        this.recordSize = recordSize;
+        data = new int[this.capacity * recordSize];
+    }
+
+    public int[] data() {
+        return data;
+    }
+
+    /**
+     * waits until there is room for a record
+     * @return index of the record in data() or -1 if buffer is closed
+     */
+    public int claim() {
+        if (writeIndex - readLimit == capacity) {
+            readLimit = read.get();
+            if (writeIndex - readLimit == capacity) {
+                fullWaits++;
+                written.lazySet(writeIndex);
+                for (int spins = 0; writeIndex - (readLimit = read.get()) == capacity; spins++) {
+                    if (closed)
+                        return -1;
+                    idle(spins);
+                }
+            }
+        }
+        return (int) (writeIndex & (capacity - 1)) * recordSize;
+    }
+
+    /**
+     * the record of last claim() is complete
+     */
+    public void commit() {
+        if ((++writeIndex & (batch - 1)) == 0)
+            written.lazySet(writeIndex);
+    }
+
+    /**
+     * makes every committed record visible to consumer
+     */
+    public void flush() {
+        written.set(writeIndex);
+    }
+
+    /**
+     * waits until there is a record, the record of the last call can be written over after this
+     * @return index of the record in data()
+     */
+    public int next() {
+        if ((readIndex & (batch - 1)) == 0)
+            read.lazySet(readIndex);
+        if (readIndex == writeLimit) {
+            writeLimit = written.get();
+            if (readIndex == writeLimit) {
+                emptyWaits++;
+                read.lazySet(readIndex);
+                for (int spins = 0; readIndex == (writeLimit = written.get()); spins++)
+                    idle(spins);
+            }
+        }
+        return (int) (readIndex++ & (capacity - 1)) * recordSize;
+    }
+
+    /**
+     * makes a waiting producer give up, the consumer calls it when it doesn't need more records
+     */
+    public void close() {
+        closed = true;
+    }
+
+    private static void idle(int spins) {
+        if (spins < 100)
+            return;
+        if (spins < 200)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(spins < 1000 ? 20_000 : 1_000_000);
+    }
+}
@@ -0,0 +1,21 @@
+package com.company;
+
+
+public class SampledTrace implements ParseTrace {
+    // passes every Nth step of parses to another trace, START, ACCEPT and ERROR are always passed
+    // e.x: new SampledTrace(new PrintTrace(grammar, System.out), 1000) prints stacks of one step in every 1000
+    private final ParseTrace trace;
+    private final int every;
+    private long step;
+
+    public SampledTrace(ParseTrace trace, int every) {
+        this.trace = trace;
+        this.every = every;
+    }
+
+    @Override
+    public void step(int kind, int symbol, int production, Token token, int[] states, int[] symbols, int top) {
+        if (kind == START || kind == ACCEPT || kind == ERROR || ++step % every == 0)
+            trace.step(kind, symbol, production, token, states, symbols, top);
+    }
+}
@@ -0,0 +1,105 @@
+package com.company;
+
+import java.util.Arrays;
+
+
+public class SemanticActions implements ParseListener {
+    // yacc like actions on a stack of long values that has a value for every symbol of parser's stack
+    //      a shift (LL: a match) pushes value of the token: result of its TokenAction or 0
+    //      a reduce pops values of right hand and pushes value of left hand: result of its RuleAction,
+    //          or value of the first symbol of right hand (0 for epsilon) like "$$ = $1" in yacc
+    // LLParser gives shifts and reduces in the same order as LR, so actions run in the same order for both drivers
+    // doubles can be stored with Double.doubleToRawLongBits, nothing is allocated for a token or a production
+    // e.x: an evaluator of "E-> E + T "
+    //      new SemanticActions(grammar).onRule("E-> E + T", (values, first) -> values[first] + values[first + 2])
+    private final Grammar grammar;
+    private final TokenAction[] tokenActions;       // terminal id -> action or null
+    private final RuleAction[] ruleActions;         // production -> action or null
+    private long[] values = new long[64];
+    private int top = -1;
+
+    public interface TokenAction {
+        long value(int terminal, CharSequence lexeme);
+    }
+
+    public interface RuleAction {
+        /**
+         * @param values value stack, values of right hand are values[first], values[first + 1], ...
+         * @return value of left hand
+         */
+        long value(long[] values, int first);
+    }
+
+    public SemanticActions(Grammar grammar) {
+        this.grammar = grammar;
+        tokenActions = new TokenAction[grammar.terminalCount];
+        ruleActions = new RuleAction[grammar.productionCount()];
+    }
+
+    /**
+     * @param terminal name of a terminal e.x: "NUM"
+     */
+    public SemanticActions onToken(String terminal, TokenAction action) {
+        int id = grammar.id(terminal);
+        if (id == -1 || !grammar.isTerminal(id))
+            throw new IllegalArgumentException(terminal + " isn't a terminal of grammar");
+        tokenActions[id] = action;
+        return this;
+    }
+
+    /**
+     * @param rule a production in "A-> B c" format, spaces don't matter, epsilon is "A->" or "A-> #"
+     */
+    public SemanticActions onRule(String rule, RuleAction action) {
+        String key = normalize(rule);
+        for (int p = 0; p < grammar.productionCount(); p++)
+            if (normalize(grammar.rules[p]).equals(key))
+                return onProduction(p, action);
+        throw new IllegalArgumentException(rule + " isn't a production of grammar");
+    }
+
+    public SemanticActions onProduction(int production, RuleAction action) {
+        ruleActions[production] = action;
+        return this;
+    }
+
+    private static String normalize(String rule) {
+        String normal = rule.replace("->", " -> ").trim().replaceAll("\\s+", " ");
+        return normal.endsWith(" -> " + Grammar.EPSILON) ? normal.substring(0, normal.length() - 2) : normal;
+    }
+
+    /**
+     * @return value of start symbol after an accepted parse
+     */
+    public long result() {
+        return top >= 0 ? values[top] : 0;
+    }
+
+    @Override
+    public void onStart() {
+        top = -1;
+    }
+
+    @Override
+    public void onShift(int terminal, CharSequence lexeme) {
+        TokenAction action = tokenActions[terminal];
+        push(action == null ? 0 : action.value(terminal, lexeme));
+    }
+
+    @Override
+    public void onReduce(int production, int rhsLength) {
+        int first = top - rhsLength + 1;
+        RuleAction action = ruleActions[production];
+        long value = action != null ? action.value(values, first) : rhsLength > 0 ? values[first] : 0;
+        top = first;
+        if (top == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+        values[top] = value;
+    }
+
+    private void push(long value) {
+        if (++top == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+        values[top] = value;
+    }
+}
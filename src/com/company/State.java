@@ -5,11 +5,14 @@ import java.util.HashMap;
 
 
 public class State {
+    final Grammar grammar;
     int stateNum;
+    KernelKey kernel;                   // key of the items this state was created from
     ArrayList<Item> itemSet;
-    HashMap<String, Integer> moveMap;
+    HashMap<Integer, Integer> moveMap;  // symbol id -> state number
 
-    public State() {
+    public State(Grammar grammar) {
+        this.grammar = grammar;
         itemSet = new ArrayList<>();
         moveMap = new HashMap<>();
     }
@@ -22,8 +25,8 @@ public class State {
         for (Item item : itemSet)
             builder.append("\t\t").append(item).append("\n");
         builder.append("\t").append("MoveMap: \n");
-        for (String key : moveMap.keySet())
-            builder.append("\t\t").append(key).append(" -> ").append(moveMap.get(key)).append("\n");
+        for (Integer key : moveMap.keySet())
+            builder.append("\t\t").append(grammar.names[key]).append(" -> ").append(moveMap.get(key)).append("\n");
         builder.append("}");
         return builder.toString();
     }
@@ -0,0 +1,249 @@
+package com.company;
+
+import java.util.Arrays;
+
+
+public class SyntaxTree implements ParseListener {
+    // concrete syntax tree of a parse in flat int arrays (an arena), a node is an index in them
+    //      kind[node]          production of a nonTerminal node, or -1 - terminal for a token
+    //      parent[node], firstChild[node], nextSibling[node]       -1 if there isn't any
+    //      firstToken[node], tokenCount[node]      tokens under node, a token is its index in input
+    //      offset[node], length[node]              bytes of source under node when lexemes are Lexeme, otherwise -1
+    // it's built by shifts and reduces of LRParser and LLParser, a reduce makes a node for the nodes on top of its stack
+    // every parse starts again from node 0 in the same arrays, they only grow, so parsing again doesn't allocate
+    // unit reductions have nodes unless tables are made with TableGenerator.bypassUnitReductions(true)
+    private final Grammar grammar;
+    private int[] kind, parent, firstChild, nextSibling, firstToken, tokenCount, offset, length;
+    private int nodeCount;
+    private int[] stack = new int[64];      // nodes that aren't children of any node yet, like stack of LR parser
+    private int top;
+    private int tokens;                     // tokens shifted in this parse
+    private int end;                        // offset after last shifted lexeme, where an epsilon node is
+    private boolean accepted;               // last parse is accepted, otherwise there isn't any root
+
+    public SyntaxTree(Grammar grammar) {
+        this(grammar, 1024);
+    }
+
+    /**
+     * @param capacity number of nodes that arrays have room for at first
+     */
+    public SyntaxTree(Grammar grammar, int capacity) {
+        this.grammar = grammar;
+        grow(Math.max(16, capacity));
+    }
+
+    private void grow(int capacity) {
+        kind = kind == null ? new int[capacity] : Arrays.copyOf(kind, capacity);
+        parent = parent == null ? new int[capacity] : Arrays.copyOf(parent, capacity);
+        firstChild = firstChild == null ? new int[capacity] : Arrays.copyOf(firstChild, capacity);
+        nextSibling = nextSibling == null ? new int[capacity] : Arrays.copyOf(nextSibling, capacity);
+        firstToken = firstToken == null ? new int[capacity] : Arrays.copyOf(firstToken, capacity);
+        tokenCount = tokenCount == null ? new int[capacity] : Arrays.copyOf(tokenCount, capacity);
+        offset = offset == null ? new int[capacity] : Arrays.copyOf(offset, capacity);
+        length = length == null ? new int[capacity] : Arrays.copyOf(length, capacity);
+    }
+
+    @Override
+    public void onStart() {
+        nodeCount = 0;
+        top = -1;
+        tokens = 0;
+        end = 0;
+        accepted = false;
+    }
+
+    @Override
+    public void onAccept() {
+        accepted = true;
+    }
+
+    @Override
+    public void onShift(int terminal, CharSequence lexeme) {
+        int node = newNode(-1 - terminal);
+        firstToken[node] = tokens++;
+        tokenCount[node] = 1;
+        if (lexeme instanceof Lexeme) {
+            offset[node] = ((Lexeme) lexeme).offset();
+            length[node] = lexeme.length();
+            end = offset[node] + length[node];
+        } else {
+            offset[node] = -1;
+            length[node] = -1;
+        }
+        push(node);
+    }
+
+    @Override
+    public void onReduce(int production, int rhsLength) {
+        int node = newNode(production);
+        int first = top - rhsLength + 1;
+        if (rhsLength == 0) {
+            // epsilon is an empty span right after the last shifted token
+            firstToken[node] = tokens;
+            tokenCount[node] = 0;
+            offset[node] = end;
+            length[node] = 0;
+        } else {
+            int firstNode = stack[first], lastNode = stack[top];
+            firstChild[node] = firstNode;
+            for (int i = first; i <= top; i++) {
+                parent[stack[i]] = node;
+                nextSibling[stack[i]] = i < top ? stack[i + 1] : -1;
+            }
+            firstToken[node] = firstToken[firstNode];
+            tokenCount[node] = firstToken[lastNode] + tokenCount[lastNode] - firstToken[firstNode];
+            if (offset[firstNode] != -1 && offset[lastNode] != -1) {
+                offset[node] = offset[firstNode];
+                length[node] = offset[lastNode] + length[lastNode] - offset[firstNode];
+            } else {
+                offset[node] = -1;
+                length[node] = -1;
+            }
+        }
+        top = first - 1;
+        push(node);
+    }
+
+    private int newNode(int nodeKind) {
+        if (nodeCount == kind.length)
+            grow(nodeCount * 2);
+        int node = nodeCount++;
+        kind[node] = nodeKind;
+        parent[node] = -1;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        return node;
+    }
+
+    private void push(int node) {
+        if (++top == stack.length)
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        stack[top] = node;
+    }
+
+    /**
+     * @return root node after an accepted parse or -1
+     */
+    public int root() {
+        return accepted && top == 0 ? stack[0] : -1;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public boolean isToken(int node) {
+        return kind[node] < 0;
+    }
+
+    /**
+     * @return terminal or nonTerminal id
+     */
+    public int symbol(int node) {
+        return kind[node] < 0 ? -1 - kind[node] : grammar.lhs[kind[node]];
+    }
+
+    /**
+     * @return production of a nonTerminal node or -1 for a token
+     */
+    public int production(int node) {
+        return kind[node] < 0 ? -1 : kind[node];
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int firstToken(int node) {
+        return firstToken[node];
+    }
+
+    public int tokenCount(int node) {
+        return tokenCount[node];
+    }
+
+    /**
+     * @return offset of the first byte under node in source or -1 if lexemes weren't a Lexeme
+     */
+    public int offset(int node) {
+        return offset[node];
+    }
+
+    public int length(int node) {
+        return length[node];
+    }
+
+    /**
+     * @return a cursor on root, every move of it fails if there isn't any root
+     */
+    public Cursor cursor() {
+        return new Cursor().reset(root());
+    }
+
+    public class Cursor {
+        // walks the tree without allocating, every move returns false and stays if there isn't such node
+        private int node;
+        private int start;          // next() doesn't leave the subtree of this node
+
+        /**
+         * moves to (@param)node and next() walks its subtree
+         */
+        public Cursor reset(int node) {
+            this.node = node;
+            this.start = node;
+            return this;
+        }
+
+        public int node() {
+            return node;
+        }
+
+        /**
+         * @return symbol of the node or -1 if the cursor isn't on a node
+         */
+        public int symbol() {
+            return node == -1 ? -1 : SyntaxTree.this.symbol(node);
+        }
+
+        public boolean gotoFirstChild() {
+            return node != -1 && move(firstChild[node]);
+        }
+
+        public boolean gotoNextSibling() {
+            return node != -1 && move(nextSibling[node]);
+        }
+
+        public boolean gotoParent() {
+            return node != -1 && node != start && move(parent[node]);
+        }
+
+        /**
+         * moves to next node in pre order (the order of a depth first walk)
+         * @return false at the end of subtree of the node it was reset to
+         */
+        public boolean next() {
+            if (gotoFirstChild())
+                return true;
+            for (int n = node; n != start; n = parent[n])
+                if (nextSibling[n] != -1)
+                    return move(nextSibling[n]);
+            return false;
+        }
+
+        private boolean move(int to) {
+            if (to == -1)
+                return false;
+            node = to;
+            return true;
+        }
+    }
+}
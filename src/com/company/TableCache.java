@@ -0,0 +1,211 @@
+package com.company;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+public class TableCache {
+    // binary file of ParseTables, so tables are generated only when grammar changes
+    // all numbers are big-endian ints, strings are length + UTF-8 bytes and arrays are length + items
+    //
+    //      magic, version
+    //      fingerprint                         (SHA-256 of grammar rules)
+    //      symbol names, terminalCount
+    //      productions: lhs, rhs, rule text
+    //      LR tables: type, stateCount, actionBase, actionCheck, actionNext, defaultAction, gotoBase, gotoCheck, gotoNext
+    //      LL(1) table: rows of productions
+    //      conflicts: type, row, column, conflict1, conflict2
+    //      resolved conflicts: type, row, column, conflict1, conflict2, resolution
+    //
+    // the file is read into a heap ByteBuffer and int arrays are copied out in bulk
+    private static final int MAGIC = 0x4C525442;        // "LRTB"
+    private static final int VERSION = 6;
+
+    /**
+     * @return SHA-256 of rules
+     */
+    public static byte[] fingerprint(List<String> rules) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String rule : rules) {
+                digest.update(rule.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void write(String fileName, byte[] fingerprint, ParseTables tables) throws IOException {
+        // written to a temporary file first, so a half written cache is never loaded
+        Path path = Paths.get(fileName);
+        Path temp = Paths.get(fileName + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fingerprint.length);
+            out.write(fingerprint);
+
+            Grammar grammar = tables.grammar;
+            out.writeInt(grammar.symbolCount());
+            for (String name : grammar.names)
+                writeString(out, name);
+            out.writeInt(grammar.terminalCount);
+            out.writeInt(grammar.productionCount());
+            for (int i = 0; i < grammar.productionCount(); i++) {
+                out.writeInt(grammar.lhs[i]);
+                writeInts(out, grammar.rhs[i]);
+                writeString(out, grammar.rules[i]);
+            }
+
+            out.writeInt(tables.lrTables.size());
+            for (Map.Entry<String, ParseTable> entry : tables.lrTables.entrySet()) {
+                ParseTable table = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeInt(table.stateCount);
+                writeInts(out, table.actionBase);
+                writeInts(out, table.actionCheck);
+                writeInts(out, table.actionNext);
+                writeInts(out, table.defaultAction);
+                writeInts(out, table.gotoBase);
+                writeInts(out, table.gotoCheck);
+                writeInts(out, table.gotoNext);
+            }
+
+            out.writeInt(tables.llTable.length);
+            for (int[] row : tables.llTable)
+                writeInts(out, row);
+
+            writeConflicts(out, tables.conflicts, false);
+            writeConflicts(out, tables.resolved, true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return tables in file or null if there isn't any file or it's created for another grammar
+     */
+    public static ParseTables load(String fileName, byte[] fingerprint) throws IOException {
+        Path path = Paths.get(fileName);
+        if (!Files.exists(path))
+            return null;
+        // read into the heap, a mapped file stays open until the buffer is collected and can't be replaced on Windows
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            return null;
+        byte[] stored = new byte[buffer.getInt()];
+        buffer.get(stored);
+        if (!Arrays.equals(stored, fingerprint))
+            return null;
+
+        String[] names = new String[buffer.getInt()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = readString(buffer);
+        int terminalCount = buffer.getInt();
+        int productionCount = buffer.getInt();
+        int[] lhs = new int[productionCount];
+        int[][] rhs = new int[productionCount][];
+        String[] rules = new String[productionCount];
+        for (int i = 0; i < productionCount; i++) {
+            lhs[i] = buffer.getInt();
+            rhs[i] = readInts(buffer);
+            rules[i] = readString(buffer);
+        }
+        Grammar grammar = new Grammar(names, terminalCount, lhs, rhs, rules);
+
+        LinkedHashMap<String, ParseTable> lrTables = new LinkedHashMap<>();
+        int tableCount = buffer.getInt();
+        for (int i = 0; i < tableCount; i++) {
+            String type = readString(buffer);
+            int stateCount = buffer.getInt();
+            lrTables.put(type, new ParseTable(stateCount, terminalCount, names.length - terminalCount
+                    , readInts(buffer), readInts(buffer), readInts(buffer), readInts(buffer)
+                    , readInts(buffer), readInts(buffer), readInts(buffer)));
+        }
+
+        int[][] llTable = new int[buffer.getInt()][];
+        for (int i = 0; i < llTable.length; i++)
+            llTable[i] = readInts(buffer);
+
+        LinkedHashMap<String, ArrayList<Conflict>> conflicts = readConflicts(buffer, false);
+        LinkedHashMap<String, ArrayList<Conflict>> resolved = readConflicts(buffer, true);
+        return new ParseTables(grammar, lrTables, llTable, conflicts, resolved);
+    }
+
+    private static void writeConflicts(DataOutputStream out, Map<String, ArrayList<Conflict>> conflicts, boolean resolved)
+            throws IOException {
+        out.writeInt(conflicts.size());
+        for (Map.Entry<String, ArrayList<Conflict>> entry : conflicts.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Conflict conflict : entry.getValue()) {
+                writeString(out, conflict.row);
+                writeString(out, conflict.column);
+                writeString(out, conflict.conflict1);
+                writeString(out, conflict.conflict2);
+                if (resolved)
+                    writeString(out, conflict.resolution);
+            }
+        }
+    }
+
+    private static LinkedHashMap<String, ArrayList<Conflict>> readConflicts(ByteBuffer buffer, boolean resolved) {
+        LinkedHashMap<String, ArrayList<Conflict>> conflicts = new LinkedHashMap<>();
+        int typeCount = buffer.getInt();
+        for (int i = 0; i < typeCount; i++) {
+            String type = readString(buffer);
+            ArrayList<Conflict> list = new ArrayList<>();
+            int count = buffer.getInt();
+            for (int j = 0; j < count; j++) {
+                Conflict conflict = new Conflict(readString(buffer), readString(buffer), readString(buffer), readString(buffer));
+                if (resolved)
+                    conflict.resolution = readString(buffer);
+                list.add(conflict);
+            }
+            conflicts.put(type, list);
+        }
+        return conflicts;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int value : array)
+            out.writeInt(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] array = new int[buffer.getInt()];
+        // copy all of the array at once through an int view of the buffer
+        buffer.asIntBuffer().get(array);
+        buffer.position(buffer.position() + array.length * 4);
+        return array;
+    }
+}
@@ -0,0 +1,783 @@
+package com.company;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+
+public class TableGenerator {
+    // generates state machines, LR(0), SLR(1), LALR(1), LR(1) and LL(1) tables of a grammar
+    final Grammar grammar;                                          // rules compiled to symbol ids
+    final FirstFollow firstFollow;                                  // first, follow and nullable sets of all symbols
+
+    private final ForkJoinPool pool;                                // workers for building state machines and tables
+    private final Metrics metrics;
+    private ArrayList<State> dfa0, dfa1;                            // state machines of last generate()
+    private int reusedStates;                                       // states of last generate() copied from previous one
+    private boolean optimize = true;                                // LR tables without conflicts go through TableOptimizer
+    private boolean bypassUnits;                                    // and it bypasses their unit reductions
+
+    public TableGenerator(Grammar grammar) {
+        this(grammar, ForkJoinPool.commonPool());
+    }
+
+    public TableGenerator(Grammar grammar, ForkJoinPool pool) {
+        this(grammar, pool, Metrics.NONE);
+    }
+
+    public TableGenerator(Grammar grammar, ForkJoinPool pool, Metrics metrics) {
+        this.grammar = grammar;
+        this.pool = pool;
+        this.metrics = metrics;
+        long start = metrics.start();
+        this.firstFollow = new FirstFollow(grammar);
+        metrics.stop("firstFollow", start);
+    }
+
+    /**
+     * @param optimize if false packed tables have every state of the state machines
+     */
+    public TableGenerator optimize(boolean optimize) {
+        this.optimize = optimize;
+        return this;
+    }
+
+    /**
+     * @param bypassUnits if true, optimized tables skip states that only reduce a unit production like T-> F,
+     *                    parsers do fewer reduces but listeners, SemanticActions and SyntaxTree don't get them
+     */
+    public TableGenerator bypassUnitReductions(boolean bypassUnits) {
+        this.bypassUnits = bypassUnits;
+        return this;
+    }
+
+    /**
+     * generates state machines and all the tables
+     * @param writeFiles if true, state machines, tables and first & follow sets are written in text files too
+     */
+    public ParseTables generate(boolean writeFiles) {
+        return generate(writeFiles, null);
+    }
+
+    /**
+     * generates tables of an edited grammar
+     * states of (@param)previous that the edit doesn't change are copied instead of being created again
+     * and all the states that exist in both state machines keep their numbers as much as possible
+     * @param previous the generator that generated tables of the grammar before the edit, or null
+     */
+    public ParseTables generate(boolean writeFiles, TableGenerator previous) {
+        long start = metrics.start();
+        ReusedStates reused0 = null, reused1 = null;
+        if (previous != null && previous.dfa0 != null) {
+            HashSet<String> changed = ReusedStates.changedNonTerminals(previous.grammar, grammar);
+            reused0 = new ReusedStates(previous.grammar, previous.dfa0, grammar, changed, 0);
+            changed.addAll(ReusedStates.changedFirst(previous.firstFollow, firstFollow));
+            reused1 = new ReusedStates(previous.grammar, previous.dfa1, grammar, changed, 1);
+        }
+        ReusedStates reusedDfa0 = reused0, reusedDfa1 = reused1;
+        reusedStates = 0;
+
+        ArrayList<Conflict> lr0Conflicts = new ArrayList<>(), slr1Conflicts = new ArrayList<>(), lalr1Conflicts = new ArrayList<>(), lr1Conflicts = new ArrayList<>(), llConflicts = new ArrayList<>();
+        ArrayList<Conflict> lr0Resolved = new ArrayList<>(), slr1Resolved = new ArrayList<>(), lalr1Resolved = new ArrayList<>(), lr1Resolved = new ArrayList<>();
+
+        // state machines and tables that don't depend on each other are created at the same time
+        ForkJoinTask<ArrayList<State>> dfa1Task = pool.submit(() -> generateDFA(1, reusedDfa1));
+        ForkJoinTask<int[][]> llTask = pool.submit(() -> createLLTable(llConflicts));
+        ArrayList<State> dfa0 = generateDFA(0, reusedDfa0);
+        ForkJoinTask<String[][]> lr0Task = pool.submit(() -> createTable(dfa0, ParseTables.LR0, lr0Conflicts, lr0Resolved));
+        ForkJoinTask<String[][]> slr1Task = pool.submit(() -> createTable(dfa0, ParseTables.SLR1, slr1Conflicts, slr1Resolved));
+        ArrayList<State> lalr1Dfa = generateLALR(dfa0);
+        ForkJoinTask<String[][]> lalr1Task = pool.submit(() -> createTable(lalr1Dfa, ParseTables.LALR1, lalr1Conflicts, lalr1Resolved));
+        ArrayList<State> dfa1 = dfa1Task.join();
+        String[][] lr1Table = createTable(dfa1, ParseTables.LR1, lr1Conflicts, lr1Resolved);
+        String[][] lr0Table = lr0Task.join();
+        String[][] slr1Table = slr1Task.join();
+        String[][] lalr1Table = lalr1Task.join();
+        int[][] llTable = llTask.join();
+        this.dfa0 = dfa0;
+        this.dfa1 = dfa1;
+
+        if (writeFiles) {
+            writeDFA(dfa0, "dfa0.txt");
+            writeDFA(dfa1, "dfa1.txt");
+            writeDFA(lalr1Dfa, "lalr1 dfa.txt");
+            writeTable(lr0Table, "lr0 table.txt");
+            writeTable(slr1Table, "slr1 table.txt");
+            writeTable(lalr1Table, "lalr1 table.txt");
+            writeTable(lr1Table, "lr1 table.txt");
+            writeLLTable(llTable);
+            writeFirstFollow();
+        }
+
+        LinkedHashMap<String, ParseTable> lrTables = new LinkedHashMap<>();
+        lrTables.put(ParseTables.LR0, pack(lr0Table, ParseTables.LR0, lr0Conflicts));
+        lrTables.put(ParseTables.SLR1, pack(slr1Table, ParseTables.SLR1, slr1Conflicts));
+        lrTables.put(ParseTables.LALR1, pack(lalr1Table, ParseTables.LALR1, lalr1Conflicts));
+        lrTables.put(ParseTables.LR1, pack(lr1Table, ParseTables.LR1, lr1Conflicts));
+
+        LinkedHashMap<String, ArrayList<Conflict>> conflicts = new LinkedHashMap<>();
+        conflicts.put(ParseTables.LL1, llConflicts);
+        conflicts.put(ParseTables.LR0, lr0Conflicts);
+        conflicts.put(ParseTables.SLR1, slr1Conflicts);
+        conflicts.put(ParseTables.LALR1, lalr1Conflicts);
+        conflicts.put(ParseTables.LR1, lr1Conflicts);
+        LinkedHashMap<String, ArrayList<Conflict>> resolved = new LinkedHashMap<>();
+        resolved.put(ParseTables.LR0, lr0Resolved);
+        resolved.put(ParseTables.SLR1, slr1Resolved);
+        resolved.put(ParseTables.LALR1, lalr1Resolved);
+        resolved.put(ParseTables.LR1, lr1Resolved);
+        metrics.add("reusedStates", reusedStates);
+        metrics.stop("generate", start);
+        return new ParseTables(grammar, lrTables, llTable, conflicts, resolved);
+    }
+
+    /**
+     * a table with conflicts isn't optimized, GLRParser needs all of its states,
+     * and its conflicting states don't get default reductions
+     */
+    private ParseTable pack(String[][] table, String type, ArrayList<Conflict> conflicts) {
+        TableOptimizer optimizer = optimize && conflicts.isEmpty() ? new TableOptimizer(grammar, bypassUnits) : null;
+        BitSet conflictingStates = new BitSet();
+        for (Conflict conflict : conflicts)
+            conflictingStates.set(Integer.parseInt(conflict.row));
+        long start = metrics.start();
+        ParseTable packed = ParseTable.pack(table, grammar, true, optimizer, conflictingStates);
+        metrics.stop("pack." + type, start);
+        metrics.add("pack." + type + ".bytes", packed.bytes());
+        if (optimizer != null && metrics.enabled()) {
+            String name = "optimize." + type;
+            metrics.add(name + ".statesBefore", optimizer.statesBefore);
+            metrics.add(name + ".statesAfter", optimizer.statesAfter);
+            metrics.add(name + ".unitBypasses", optimizer.unitBypasses);
+            metrics.add(name + ".mergedStates", optimizer.mergedStates);
+            metrics.add(name + ".bytesBefore", ParseTable.pack(table, grammar, true).bytes());
+        }
+        return packed;
+    }
+
+    /***
+     * @param type can be 'lr0', 'slr1', 'lalr1', 'lr1'
+     * @param resolved shift/reduce conflicts that precedence of the terminal and the production resolves
+     *                 are added here instead of (@param)conflicts
+     */
+    String[][] createTable(ArrayList<State> dfa, String type, ArrayList<Conflict> conflicts, ArrayList<Conflict> resolved) {
+        long start = metrics.start();
+        String[][] table = new String[dfa.size()][grammar.symbolCount()];
+        State state;
+        for (int i = 0; i < dfa.size(); i++) {
+            state = dfa.get(i);
+            for (Item item : state.itemSet)
+                if (grammar.isReducible(item.core)) {
+                    // it's a reducible item
+                    int left = grammar.lhs[item.ruleNum];
+
+                    // determines for which terminals this item should be reduced based on parser type
+                    BitSet terminalsToReduce;
+                    switch (type) {
+                        case ParseTables.LR0:
+                            terminalsToReduce = new BitSet();
+                            terminalsToReduce.set(0, grammar.terminalCount);
+                            break;
+                        case ParseTables.SLR1:
+                            terminalsToReduce = firstFollow.follow[left];
+                            break;
+                        case ParseTables.LALR1:
+                        case ParseTables.LR1:
+                            terminalsToReduce = item.lookahead;
+                            break;
+                        default:
+                            terminalsToReduce = new BitSet();
+                    }
+
+                    for (int t = terminalsToReduce.nextSetBit(0); t >= 0; t = terminalsToReduce.nextSetBit(t + 1)) {
+                        if (left == grammar.startSymbol && t == grammar.endMarker) {
+                            // the start symbol may be inside another rule too, so it's only accepted
+                            // if this reduce leaves nothing else on the stack, e.x: "acc0"
+                            table[i][t] = "acc" + item.ruleNum;
+                            break;
+                        } else {
+                            // reduce
+                            if (table[i][t] != null)
+                                // reduce/reduce conflicts
+                                conflicts.add(new Conflict(String.valueOf(i), grammar.names[t], table[i][t]
+                                        , String.format("r%d", item.ruleNum)));
+                            table[i][t] = String.format("r%d", item.ruleNum);
+                        }
+                    }
+                }
+
+            // for all types(LR(0), SLR(1), LALR(1), LR(1)) shift & GOTO are the same
+            for (int symb : state.moveMap.keySet()) {
+                if (!grammar.isTerminal(symb)) {
+                    // it's a non-terminal
+                    // GOTO
+                    table[i][symb] = String.valueOf(state.moveMap.get(symb));
+                } else {
+                    // it's terminal
+                    // shift
+                    String shift = String.format("s%d", state.moveMap.get(symb));
+                    String winner = table[i][symb] == null ? shift : resolve(table[i][symb], shift, symb);
+                    if (winner == null)
+                        // shift/reduce or shift/shift conflict
+                        conflicts.add(new Conflict(String.valueOf(i), grammar.names[symb], table[i][symb], shift));
+                    else if (table[i][symb] != null)
+                        resolved.add(new Conflict(String.valueOf(i), grammar.names[symb], table[i][symb], shift, winner));
+                    table[i][symb] = winner == null ? shift : winner;
+                }
+            }
+        }
+        if (metrics.enabled()) {
+            metrics.stop("table." + type, start);
+            metrics.add("table." + type + ".cells", countCells(table));
+            metrics.add("table." + type + ".conflicts", conflicts.size());
+            metrics.add("table." + type + ".resolved", resolved.size());
+        }
+        return table;
+    }
+
+    /**
+     * resolves a shift/reduce conflict like yacc: the one with higher precedence wins, on equal precedence
+     * a left associative terminal reduces, a right associative one shifts and a nonassoc one is an error
+     * e.x: with %left + and %left * , "E-> E + E @" reduces on + and shifts on *
+     * @return the action that wins or null if the conflict can't be resolved
+     */
+    private String resolve(String reduce, String shift, int terminal) {
+        if (!reduce.startsWith("r"))
+            return null;
+        int production = Integer.parseInt(reduce.substring(1));
+        int productionLevel = grammar.productionPrecedence[production];
+        int terminalLevel = grammar.precedence[terminal];
+        if (productionLevel == 0 || terminalLevel == 0)
+            return null;
+        if (terminalLevel != productionLevel)
+            return terminalLevel > productionLevel ? shift : reduce;
+        switch (grammar.associativity[terminal]) {
+            case Grammar.LEFT:
+                return reduce;
+            case Grammar.RIGHT:
+                return shift;
+            default:
+                return ParseTable.EXPLICIT_ERROR;
+        }
+    }
+
+    /**
+     * @return LL(1) table, rows are nonTerminal ids - terminalCount, columns are terminal ids
+     * and each cell is a production number or -1
+     */
+    int[][] createLLTable(ArrayList<Conflict> conflicts) {
+        long start = metrics.start();
+        int[][] llTable = new int[grammar.symbolCount() - grammar.terminalCount][grammar.terminalCount];
+        for (int[] row : llTable)
+            Arrays.fill(row, -1);
+        for (int i = 0; i < grammar.productionCount(); i++) {
+            String rule = grammar.rules[i];
+            String startSymbol = grammar.names[grammar.lhs[i]];
+            int row = grammar.lhs[i] - grammar.terminalCount;
+
+            // this rule is chosen for first(right hand)
+            // and if right hand can derive epsilon, for follow(startSymbol) too
+            BitSet terms = new BitSet();
+            if (firstFollow.firstOf(grammar.rhs[i], 0, terms))
+                terms.or(firstFollow.follow[grammar.lhs[i]]);
+            for (int term = terms.nextSetBit(0); term >= 0; term = terms.nextSetBit(term + 1)) {
+                if (llTable[row][term] != -1)
+                    conflicts.add(new Conflict(startSymbol, grammar.names[term], grammar.rules[llTable[row][term]], rule));
+                llTable[row][term] = i;
+            }
+        }
+        if (metrics.enabled()) {
+            int cells = 0;
+            for (int[] row : llTable)
+                for (int cell : row)
+                    if (cell != -1)
+                        cells++;
+            metrics.stop("table." + ParseTables.LL1, start);
+            metrics.add("table." + ParseTables.LL1 + ".cells", cells);
+            metrics.add("table." + ParseTables.LL1 + ".conflicts", conflicts.size());
+        }
+        return llTable;
+    }
+
+    private static int countCells(String[][] table) {
+        int cells = 0;
+        for (String[] row : table)
+            for (String cell : row)
+                if (cell != null)
+                    cells++;
+        return cells;
+    }
+
+    /**
+     * will add all of items from second set to first set
+     * @return true if first set has changed
+     */
+    private boolean union(BitSet toSet, BitSet fromSet) {
+        int before = toSet.cardinality();
+        toSet.or(fromSet);
+        return toSet.cardinality() != before;
+    }
+
+    /**
+     * calculates lookAhead for given item
+     */
+    private BitSet Lookahead(Item parent) {
+        BitSet output = new BitSet();
+        // e.x: parent == [A->a.BCDE ,x/y]
+        // output = first(CDE)
+        if (firstFollow.firstOf(grammar.rhs[parent.ruleNum], Grammar.dot(parent.core) + 1, output)) {
+            // e.x: parent == [A->a.B ,D]
+            // or first(CDE) contains "#"
+            // so all of parent lookahead also should be added to output
+            output.or(parent.lookahead);
+        }
+        return output;
+    }
+
+    /**
+     * states are created level by level (breadth first):
+     *      1. kernels of all moves of the states of last level are calculated in parallel
+     *      2. new kernels get state numbers in order of the states and their moves
+     *      3. closures of the new states are calculated in parallel
+     * step 2 is the only serial one and it's only hashing, so state numbers are the same in every run
+     * @param lr0_1 can be 0 or 1
+     * @value 0 is for LR(0), SLR(1) or LALR(1)
+     * @value 1 is for LR(1)
+     */
+    ArrayList<State> generateDFA(int lr0_1) {
+        return generateDFA(lr0_1, null);
+    }
+
+    /**
+     * @param reused states that are copied instead of calculating their closure, or null
+     */
+    private ArrayList<State> generateDFA(int lr0_1, ReusedStates reused) {
+        long start = metrics.start();
+        String name = lr0_1 == 0 ? "dfa.lr0" : "dfa.lr1";
+        long dedupHits = 0, closureItems = 0;
+        ArrayList<State> dfa = new ArrayList<>();
+        //create first state
+        Item item = new Item(grammar, 0);
+        if (lr0_1 == 1)
+            item.lookahead.set(grammar.endMarker);
+        ArrayList<Item> kernel = new ArrayList<>(Collections.singletonList(item));
+        State firstState = createState(kernel, lr0_1);
+        firstState.stateNum = 0;
+        firstState.kernel = KernelKey.of(kernel, lr0_1);
+        dfa.add(firstState);
+        closureItems += firstState.itemSet.size();
+
+        // maps kernel of every created state to its state number
+        // workers look up kernels in it while new states are only added in step 2
+        ConcurrentHashMap<KernelKey, Integer> index = new ConcurrentHashMap<>();
+        index.put(firstState.kernel, 0);
+
+        BitSet copied = new BitSet();                       // states that are copied from reused
+
+        // states from levelStart to the end of dfa are the last level
+        int levelStart = 0;
+        while (levelStart < dfa.size()) {
+            int levelEnd = dfa.size();
+            Moves[] moves = new Moves[levelEnd - levelStart];
+            int from = levelStart;
+            pool.invoke(new ForEach(0, moves.length, i -> moves[i] = moves(dfa.get(from + i), lr0_1, index)));
+
+            for (int i = 0; i < moves.length; i++) {
+                State currState = dfa.get(levelStart + i);
+                for (int j = 0; j < moves[i].symbols.length; j++) {
+                    Integer result = moves[i].targets[j];
+                    if (result == null)
+                        // it may be created by another move of this level
+                        result = index.get(moves[i].keys[j]);
+                    if (result != null)
+                        dedupHits++;
+                    if (result == null) {
+                        // new state created, its closure is calculated later
+                        State newState = new State(grammar);
+                        newState.itemSet = moves[i].kernels.get(j);
+                        newState.kernel = moves[i].keys[j];
+                        ArrayList<Item> copy = reused == null ? null : reused.itemSets.get(newState.kernel);
+                        if (copy != null) {
+                            newState.itemSet = copy;
+                            copied.set(dfa.size());
+                        }
+                        newState.stateNum = dfa.size();
+                        dfa.add(newState);
+                        index.put(newState.kernel, newState.stateNum);
+                        result = newState.stateNum;
+                    }
+                    currState.moveMap.put(moves[i].symbols[j], result);
+                }
+            }
+
+            pool.invoke(new ForEach(levelEnd, dfa.size(), i -> {
+                State state = dfa.get(i);
+                if (!copied.get(i))
+                    state.itemSet = closure(state.itemSet, lr0_1);
+            }));
+            for (int i = levelEnd; i < dfa.size(); i++)
+                closureItems += dfa.get(i).itemSet.size();
+            levelStart = levelEnd;
+        }
+        metrics.stop(name, start);
+        metrics.add(name + ".states", dfa.size());
+        metrics.add(name + ".dedupHits", dedupHits);
+        metrics.add(name + ".closureItems", closureItems);
+        if (reused == null)
+            return dfa;
+        synchronized (this) {
+            reusedStates += copied.cardinality();
+        }
+        return renumber(dfa, reused.numbers);
+    }
+
+    /**
+     * states that existed before get their previous numbers, new ones get the free numbers
+     * if the state machine is smaller than before, the states with numbers after its size get the free numbers too
+     * state 0 is always the start state
+     */
+    private ArrayList<State> renumber(ArrayList<State> dfa, HashMap<KernelKey, Integer> numbers) {
+        int[] number = new int[dfa.size()];
+        BitSet taken = new BitSet(dfa.size());
+        taken.set(0);
+        for (int i = 1; i < dfa.size(); i++) {
+            Integer previous = numbers.get(dfa.get(i).kernel);
+            number[i] = -1;
+            if (previous != null && previous < dfa.size() && !taken.get(previous)) {
+                number[i] = previous;
+                taken.set(previous);
+            }
+        }
+        for (int i = 1; i < dfa.size(); i++)
+            if (number[i] == -1) {
+                number[i] = taken.nextClearBit(0);
+                taken.set(number[i]);
+            }
+
+        State[] renumbered = new State[dfa.size()];
+        for (State state : dfa) {
+            HashMap<Integer, Integer> moveMap = new HashMap<>();
+            for (Map.Entry<Integer, Integer> move : state.moveMap.entrySet())
+                moveMap.put(move.getKey(), number[move.getValue()]);
+            state.moveMap = moveMap;
+            state.stateNum = number[state.stateNum];
+            renumbered[state.stateNum] = state;
+        }
+        return new ArrayList<>(Arrays.asList(renumbered));
+    }
+
+    /**
+     * @return number of states of last generate() that were copied from previous state machines
+     */
+    public int reusedStates() {
+        return reusedStates;
+    }
+
+    /**
+     * all moves of a state, kernel of target of a move is in kernels and keys
+     * and target is its state number if it already exists or null
+     */
+    private static class Moves {
+        int[] symbols;
+        ArrayList<ArrayList<Item>> kernels;
+        KernelKey[] keys;
+        Integer[] targets;
+    }
+
+    private Moves moves(State state, int lr0_1, ConcurrentHashMap<KernelKey, Integer> index) {
+        Moves moves = new Moves();
+        moves.kernels = gotoKernels(state);
+        moves.symbols = new int[moves.kernels.size()];
+        moves.keys = new KernelKey[moves.symbols.length];
+        moves.targets = new Integer[moves.symbols.length];
+        for (int j = 0; j < moves.symbols.length; j++) {
+            ArrayList<Item> kernel = moves.kernels.get(j);
+            // '@' of all items of a kernel is after the same symbol
+            Item first = kernel.get(0);
+            moves.symbols[j] = grammar.rhs[first.ruleNum][Grammar.dot(first.core) - 1];
+            moves.keys[j] = KernelKey.of(kernel, lr0_1);
+            moves.targets[j] = index.get(moves.keys[j]);
+        }
+        return moves;
+    }
+
+    /**
+     * runs action for all numbers from (@param)from to (@param)to, by splitting the range between workers
+     */
+    private static class ForEach extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from, to;
+        private final IntConsumer action;
+
+        ForEach(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to)
+                    action.accept(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ForEach(from, middle, action), new ForEach(middle, to, action));
+            }
+        }
+    }
+
+    /**
+     * LALR(1) state machine is the LR(0) state machine with lookaheads
+     * lookaheads of kernel items are generated spontaneously or propagated from another kernel item
+     * and are calculated on (@param)dfa0 without creating any LR(1) state
+     * @return a copy of dfa0 whose items have LALR(1) lookaheads
+     */
+    ArrayList<State> generateLALR(ArrayList<State> dfa0) {
+        long start = metrics.start();
+        // number all kernel items of all states
+        // kernels of state s are from kernelStart[s] to kernelStart[s + 1]
+        int[] kernelStart = new int[dfa0.size() + 1];
+        ArrayList<Item> kernels = new ArrayList<>();
+        for (State state : dfa0) {
+            kernelStart[state.stateNum] = kernels.size();
+            // the item of production 0 with '@' at the start is only a kernel item of the first state,
+            // other states that close over the start symbol have it as a closure item
+            for (Item item : state.itemSet)
+                if (Grammar.dot(item.core) > 0 || item.ruleNum == 0 && state.stateNum == 0)
+                    kernels.add(item);
+        }
+        kernelStart[dfa0.size()] = kernels.size();
+
+        BitSet[] lookaheads = new BitSet[kernels.size()];
+        ArrayList<ArrayList<Integer>> propagateTo = new ArrayList<>();
+        for (int k = 0; k < kernels.size(); k++) {
+            lookaheads[k] = new BitSet();
+            propagateTo.add(new ArrayList<>());
+        }
+        lookaheads[0].set(grammar.endMarker);
+
+        // terminal ids are less than terminalCount, so it can be used as the dummy lookahead '#'
+        int dummy = grammar.terminalCount;
+        for (State state : dfa0) {
+            for (int k = kernelStart[state.stateNum]; k < kernelStart[state.stateNum + 1]; k++) {
+                // e.x: kernel item [A->a@B ,#]
+                BitSet look = new BitSet();
+                look.set(dummy);
+                ArrayList<Item> closureSet = closure(new ArrayList<>(Collections.singletonList(
+                        new Item(grammar, kernels.get(k).core, look))), 1);
+                for (Item item : closureSet) {
+                    int symb = grammar.symbolAfterDot(item.core);
+                    if (symb == -1)
+                        continue;
+                    // the kernel item that this item becomes after moving by symb
+                    int target = state.moveMap.get(symb), j = kernelStart[target];
+                    while (kernels.get(j).core != Grammar.advance(item.core))
+                        j++;
+                    // real lookaheads are generated spontaneously and '#' means propagation
+                    for (int t = item.lookahead.nextSetBit(0); t >= 0; t = item.lookahead.nextSetBit(t + 1)) {
+                        if (t == dummy) {
+                            if (!propagateTo.get(k).contains(j))
+                                propagateTo.get(k).add(j);
+                        } else
+                            lookaheads[j].set(t);
+                    }
+                }
+            }
+        }
+
+        // propagate lookaheads until nothing changes
+        Queue<Integer> queue = new LinkedList<>();
+        for (int k = 0; k < kernels.size(); k++)
+            if (!lookaheads[k].isEmpty())
+                queue.add(k);
+        while (!queue.isEmpty()) {
+            int k = queue.poll();
+            for (int j : propagateTo.get(k))
+                if (union(lookaheads[j], lookaheads[k]))
+                    queue.add(j);
+        }
+
+        // closure of kernels with their final lookaheads gives lookaheads of all the items
+        ArrayList<State> dfa = new ArrayList<>();
+        for (State state : dfa0) {
+            ArrayList<Item> kernel = new ArrayList<>();
+            for (int k = kernelStart[state.stateNum]; k < kernelStart[state.stateNum + 1]; k++)
+                kernel.add(new Item(grammar, kernels.get(k).core, lookaheads[k]));
+            State newState = createState(kernel, 1);
+            newState.stateNum = state.stateNum;
+            newState.kernel = state.kernel;
+            newState.moveMap.putAll(state.moveMap);
+            dfa.add(newState);
+        }
+        metrics.stop("dfa.lalr1", start);
+        metrics.add("dfa.lalr1.states", dfa.size());
+        return dfa;
+    }
+
+    private State createState(ArrayList<Item> items, int lr0_1) {
+        State state = new State(grammar);
+        state.itemSet.addAll(closure(items, lr0_1));
+        return state;
+    }
+
+    /**
+     * items of closure are (@param)items and then the items of the productions in precomputed closures
+     * of nonTerminals after '@' of those items, in order of production number
+     * for LR(1) lookaheads are propagated from each item to the productions of the nonTerminal after its '@'
+     */
+    private ArrayList<Item> closure(ArrayList<Item> items, int lr0_1) {
+        ArrayList<Item> set = new ArrayList<>(items);      // closure set
+        BitSet productions = new BitSet(grammar.productionCount());
+        for (Item item : items) {
+            int nextSymb = grammar.symbolAfterDot(item.core);
+            if (nextSymb != -1 && !grammar.isTerminal(nextSymb))
+                productions.or(grammar.closures[nextSymb - grammar.terminalCount]);
+        }
+        if (productions.isEmpty())
+            return set;
+
+        // production -> index of its item with '@' at the start, it may be one of (@param)items
+        HashMap<Integer, Integer> initial = new HashMap<>();
+        for (int i = 0; i < items.size(); i++)
+            if (Grammar.dot(items.get(i).core) == 0)
+                initial.put(items.get(i).ruleNum, i);
+        for (int p = productions.nextSetBit(0); p >= 0; p = productions.nextSetBit(p + 1)) {
+            if (!initial.containsKey(p)) {
+                initial.put(p, set.size());
+                set.add(new Item(grammar, p));
+            }
+        }
+        if (lr0_1 == 0)
+            return set;
+
+        // add lookaheads until nothing changes
+        Queue<Integer> queue = new ArrayDeque<>();
+        BitSet queued = new BitSet(set.size());
+        for (int i = 0; i < set.size(); i++)
+            queue.add(i);
+        queued.set(0, set.size());
+        while (!queue.isEmpty()) {
+            int parent = queue.poll();
+            queued.clear(parent);
+            Item parentItem = set.get(parent);
+            int nextSymb = grammar.symbolAfterDot(parentItem.core);
+            if (nextSymb == -1 || grammar.isTerminal(nextSymb))
+                continue;
+            BitSet lookahead = Lookahead(parentItem);
+            for (int p : grammar.productionsOf[nextSymb - grammar.terminalCount]) {
+                int i = initial.get(p);
+                if (union(set.get(i).lookahead, lookahead) && !queued.get(i)) {
+                    // new lookaheads must reach the items that this item adds
+                    queued.set(i);
+                    queue.add(i);
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * partitions items of state by the symbol after their '@' in a single pass over them
+     * @return kernel of every move of state, after moving '@' forward
+     * moves are in order of their symbol's first item in state and items of a kernel are sorted like KernelKey
+     */
+    private ArrayList<ArrayList<Item>> gotoKernels(State state) {
+        ArrayList<ArrayList<Item>> kernels = new ArrayList<>();
+        HashMap<Integer, ArrayList<Item>> bySymbol = new HashMap<>();
+        for (Item item : state.itemSet) {
+            // symb is the first symbol after '@', -1 if the item is reducible
+            int symb = grammar.symbolAfterDot(item.core);
+            if (symb == -1)
+                continue;
+            ArrayList<Item> kernel = bySymbol.get(symb);
+            if (kernel == null) {
+                kernel = new ArrayList<>();
+                bySymbol.put(symb, kernel);
+                kernels.add(kernel);
+            }
+            // create new item after moving '@' forward
+            kernel.add(new Item(grammar, Grammar.advance(item.core), (BitSet) item.lookahead.clone()));
+        }
+        for (ArrayList<Item> kernel : kernels)
+            if (!KernelKey.isSorted(kernel))
+                kernel.sort(KernelKey.ORDER);
+        return kernels;
+    }
+
+    private void writeDFA(ArrayList<State> dfa, String fileName) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+            for (State s : dfa)
+                writer.write(s.toString());
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeFirstFollow() {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter("FF.txt"));
+            writer.write("First:" + "\n");
+            for (int i = grammar.terminalCount; i < grammar.symbolCount(); i++) {
+                writer.write(String.format("%20s -> %s\n", grammar.names[i]
+                        , firstFollow.toString(firstFollow.first[i], firstFollow.nullable.get(i))));
+            }
+            writer.write("Follow:" + "\n");
+            for (int i = grammar.terminalCount; i < grammar.symbolCount(); i++) {
+                writer.write(String.format("%20s -> %s\n", grammar.names[i]
+                        , firstFollow.toString(firstFollow.follow[i], false)));
+            }
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeTable(String[][] table, String fileName) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+            writer.write(String.format("%-15s", "state number"));
+            for (int i = 0; i < table[1].length; i++)
+                writer.write(String.format("%-15s", grammar.names[i]));
+            writer.write('\n');
+            for (int i = 0; i < table.length; i++) {
+                writer.write(String.format("%-15d", i));
+                for (int j = 0; j < table[i].length; j++) {
+                    writer.write(String.format("%-15s", table[i][j]));
+                }
+                writer.write("\n");
+            }
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeLLTable(int[][] llTable) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter("ll1 Table.txt"));
+            writer.write(String.format("%-30s", " "));
+            for (int i = 0; i < llTable[0].length; i++)
+                writer.write(String.format("%-30s", grammar.names[i]));
+            writer.write("\n");
+            for (int row = 0; row < llTable.length; row++) {
+                writer.write(String.format("%-30s", grammar.names[grammar.terminalCount + row]));
+                for (int i = 0; i < llTable[0].length; i++) {
+                    writer.write(String.format("%-30s", llTable[row][i] == -1 ? null : grammar.rules[llTable[row][i]]));
+                }
+                writer.write("\n");
+            }
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
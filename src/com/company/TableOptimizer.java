@@ -0,0 +1,189 @@
+package com.company;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+
+public class TableOptimizer {
+    // makes an LR table do fewer steps and take less space before it's packed, rows are encoded like ParseTable
+    //      unit reductions (only if it's asked to): a state whose only action is reducing a unit production A-> B
+    //          is never entered, GOTO on B goes to where GOTO on A would go after that reduction
+    //          (e.x: PROGRAM-> DECL_LIST), an error may be found after some more reductions, but never after
+    //          shifting a wrong token. Those reductions never happen, so listeners of parsers (SemanticActions,
+    //          SyntaxTree) and traces don't see them
+    //      equivalent states: states with the same actions and GOTOs (targets are compared by their class)
+    //          are merged like minimizing a DFA, the smallest state number of each class stays
+    //      unreachable states get empty rows, so they take no space in packed table
+    // state numbers don't change, so dfa files and conflicts are still correct
+    // it shouldn't be used for a table with conflicts, GLR needs every action and every node of its forest
+    private final Grammar grammar;
+    private final boolean bypassUnits;
+    int statesBefore, statesAfter;          // reachable states
+    int unitBypasses;                       // GOTO entries that skip a unit reduction
+    int mergedStates;
+
+    /**
+     * @param bypassUnits if true, unit reductions are bypassed too
+     */
+    public TableOptimizer(Grammar grammar, boolean bypassUnits) {
+        this.grammar = grammar;
+        this.bypassUnits = bypassUnits;
+    }
+
+    /**
+     * @param actionPart state -> terminal id -> encoded action
+     * @param gotoPart state -> nonTerminal id - terminalCount -> next state or -1
+     */
+    void optimize(int[][] actionPart, int[][] gotoPart) {
+        statesBefore = clearUnreachable(actionPart, gotoPart);
+        if (bypassUnits)
+            bypassUnitReductions(actionPart, gotoPart);
+        mergeEquivalentStates(actionPart, gotoPart);
+        statesAfter = clearUnreachable(actionPart, gotoPart);
+    }
+
+    private void bypassUnitReductions(int[][] actionPart, int[][] gotoPart) {
+        // state -> the unit production that is its only action or -1
+        int[] unitOf = new int[actionPart.length];
+        for (int state = 0; state < actionPart.length; state++) {
+            unitOf[state] = -1;
+            int reduce = ParseTable.ERROR;
+            boolean only = true;
+            for (int action : actionPart[state])
+                if (action != ParseTable.ERROR) {
+                    only &= reduce == ParseTable.ERROR || action == reduce;
+                    reduce = action;
+                }
+            for (int next : gotoPart[state])
+                only &= next == -1;
+            if (!only || ParseTable.kind(reduce) != ParseTable.REDUCE)
+                continue;
+            int production = ParseTable.value(reduce);
+            int[] right = grammar.rhs[production];
+            if (right.length == 1 && !grammar.isTerminal(right[0]))
+                unitOf[state] = production;
+        }
+
+        for (int state = 0; state < gotoPart.length; state++)
+            for (int column = 0; column < gotoPart[state].length; column++) {
+                int next = gotoPart[state][column];
+                // a chain like DECL-> VAR_DECL, DECL_LIST-> DECL is followed to its end
+                // its length is limited in case of a cycle of unit productions
+                for (int steps = 0; next != -1 && unitOf[next] != -1 && steps < actionPart.length; steps++) {
+                    int bypass = gotoPart[state][grammar.lhs[unitOf[next]] - grammar.terminalCount];
+                    if (bypass == -1)
+                        break;
+                    next = bypass;
+                }
+                if (next != gotoPart[state][column]) {
+                    gotoPart[state][column] = next;
+                    unitBypasses++;
+                }
+            }
+    }
+
+    private void mergeEquivalentStates(int[][] actionPart, int[][] gotoPart) {
+        int count = actionPart.length;
+        // all states start in one class, classes are split until targets of each class are in the same classes
+        int[] classOf = new int[count];
+        int classCount = 1;
+        while (true) {
+            HashMap<Signature, Integer> classes = new HashMap<>();
+            int[] next = new int[count];
+            for (int state = 0; state < count; state++) {
+                Signature signature = new Signature(classOf[state], actionPart[state], gotoPart[state], classOf);
+                Integer id = classes.get(signature);
+                if (id == null) {
+                    id = classes.size();
+                    classes.put(signature, id);
+                }
+                next[state] = id;
+            }
+            classOf = next;
+            if (classes.size() == classCount)
+                break;
+            classCount = classes.size();
+        }
+
+        int[] representative = new int[classCount];
+        Arrays.fill(representative, -1);
+        for (int state = 0; state < count; state++)
+            if (representative[classOf[state]] == -1)
+                representative[classOf[state]] = state;
+            else
+                mergedStates++;
+        for (int state = 0; state < count; state++) {
+            int[] actions = actionPart[state];
+            for (int t = 0; t < actions.length; t++)
+                if (ParseTable.kind(actions[t]) == ParseTable.SHIFT)
+                    actions[t] = ParseTable.encode(ParseTable.SHIFT
+                            , representative[classOf[ParseTable.value(actions[t])]]);
+            int[] gotos = gotoPart[state];
+            for (int n = 0; n < gotos.length; n++)
+                if (gotos[n] != -1)
+                    gotos[n] = representative[classOf[gotos[n]]];
+        }
+    }
+
+    /**
+     * empties rows of states that can't be reached from state 0
+     * @return number of reachable states
+     */
+    private static int clearUnreachable(int[][] actionPart, int[][] gotoPart) {
+        boolean[] reached = new boolean[actionPart.length];
+        int[] stack = new int[actionPart.length];
+        int top = 0, count = 1;
+        stack[top++] = 0;
+        reached[0] = true;
+        while (top > 0) {
+            int state = stack[--top];
+            for (int action : actionPart[state]) {
+                int next = ParseTable.kind(action) == ParseTable.SHIFT ? ParseTable.value(action) : -1;
+                if (next != -1 && !reached[next]) {
+                    reached[next] = true;
+                    stack[top++] = next;
+                    count++;
+                }
+            }
+            for (int next : gotoPart[state])
+                if (next != -1 && !reached[next]) {
+                    reached[next] = true;
+                    stack[top++] = next;
+                    count++;
+                }
+        }
+        for (int state = 0; state < actionPart.length; state++)
+            if (!reached[state]) {
+                Arrays.fill(actionPart[state], ParseTable.ERROR);
+                Arrays.fill(gotoPart[state], -1);
+            }
+        return count;
+    }
+
+    private static class Signature {
+        // actions and GOTOs of a state where target states are replaced by their classes
+        final int[] values;
+        final int hash;
+
+        Signature(int classOf, int[] actions, int[] gotos, int[] classes) {
+            values = new int[1 + actions.length + gotos.length];
+            values[0] = classOf;
+            for (int t = 0; t < actions.length; t++)
+                values[1 + t] = ParseTable.kind(actions[t]) == ParseTable.SHIFT
+                        ? ParseTable.encode(ParseTable.SHIFT, classes[ParseTable.value(actions[t])]) : actions[t];
+            for (int n = 0; n < gotos.length; n++)
+                values[1 + actions.length + n] = gotos[n] == -1 ? -1 : classes[gotos[n]];
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(values, ((Signature) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,10 +1,28 @@
 package com.company;
 
 public class Token {
-    String token;
+    String token;           // type of token, it's a terminal in grammar
+    String lexeme;          // text of token in source (e.x: for "IDENT,main" it's "main")
 
     public Token(String token) {
+        this(token, token);
+    }
+
+    public Token(String token, String lexeme) {
         this.token = token;
+        this.lexeme = lexeme;
+    }
+
+    /**
+     * @param line "TYPE,lexeme" or only "TYPE"
+     * e.x: ",,," is a token of type "," with lexeme ","
+     */
+    static Token parse(String line) {
+        line = line.trim();
+        int idx = line.indexOf(',', 1);
+        if (idx == -1)
+            return new Token(line);
+        return new Token(line.substring(0, idx), line.substring(idx + 1));
     }
 
     @Override
@@ -0,0 +1,166 @@
+package com.company;
+
+
+public class TokenPipeline implements IdTokenSource {
+    // reads tokens of another source on its own thread and passes them to the parser through a RingBuffer,
+    // so scanning a file (or reading a tokens file) and parsing it run at the same time
+    // a record is (terminal id, offset, length) of a token
+    //      offset and length are its lexeme in source of a TokenStream, then token() can still decode it
+    //      for any other source only its type is kept, token() has its type as lexeme
+    // it must be closed, so the producer stops if parser stops before the end of input
+    // whatever stops the producer (an exception or an Error of source), the last record is END, so parser never
+    // waits for a producer that is gone, and it gets the failure when it reads END
+    private static final int CAPACITY = 1 << 14;        // records
+    private static final int BATCH = 256;
+
+    private final TokenSource source;
+    private final TokenStream stream;       // source if it's a TokenStream or null
+    private final Grammar grammar;
+    private final Metrics metrics;
+    private final RingBuffer ring;
+    private final int[] data;
+    private final Thread producer;
+    private volatile Throwable failure;             // thrown by producer, parser gets it at the end of records
+
+    private int id = END, offset, length;           // current token
+    private boolean peeked;
+    private boolean finished;
+    private final Lexeme text = new Lexeme();
+
+    public TokenPipeline(TokenSource source, Grammar grammar) {
+        this(source, grammar, Metrics.NONE);
+    }
+
+    public TokenPipeline(TokenSource source, Grammar grammar, Metrics metrics) {
+        this.source = source;
+        this.stream = source instanceof TokenStream ? (TokenStream) source : null;
+        this.grammar = grammar;
+        this.metrics = metrics;
+        ring = new RingBuffer(CAPACITY, 3, BATCH);
+        data = ring.data();
+        producer = new Thread(this::produce, "token producer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce() {
+        boolean ended = false;          // END is put or parser has closed the pipeline
+        try {
+            int next;
+            do {
+                int offset = -1, length = 0;
+                if (stream != null) {
+                    next = stream.nextId();
+                    offset = stream.offset();
+                    length = stream.length();
+                } else {
+                    Token token = source.next();
+                    next = token == null ? END : grammar.id(token.token);
+                    if (token != null && (next == -1 || !grammar.isTerminal(next)))
+                        next = UNKNOWN;
+                }
+                ended = next == END;
+                if (!put(next, offset, length))
+                    ended = true;
+            } while (!ended);
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            if (!ended)
+                put(END, -1, 0);
+            ring.flush();
+            source.close();
+        }
+    }
+
+    /**
+     * @return false if parser has closed the pipeline
+     */
+    private boolean put(int id, int offset, int length) {
+        int at = ring.claim();
+        if (at == -1)
+            return false;
+        data[at] = id;
+        data[at + 1] = offset;
+        data[at + 2] = length;
+        ring.commit();
+        return true;
+    }
+
+    @Override
+    public int nextId() {
+        if (peeked) {
+            peeked = false;
+            return id;
+        }
+        if (finished)
+            return END;
+        int at = ring.next();
+        id = data[at];
+        offset = data[at + 1];
+        length = data[at + 2];
+        if (id == END) {
+            finished = true;
+            if (failure != null)
+                throw rethrow(failure);
+        }
+        return id;
+    }
+
+    /**
+     * @return (@param)e as an unchecked exception of parser's thread, RuntimeException and Error are thrown as they are
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new IllegalStateException("token producer failed", e);
+    }
+
+    @Override
+    public Token token() {
+        if (id == grammar.endMarker)
+            return new Token(Grammar.END);
+        if (stream == null)
+            return new Token(id == UNKNOWN ? "unknown token" : grammar.names[id]);
+        String lexeme = stream.lexeme(offset, length);
+        return new Token(id == UNKNOWN ? "unknown " + lexeme : grammar.names[id], lexeme);
+    }
+
+    @Override
+    public CharSequence text() {
+        if (stream == null)
+            return id < 0 ? "" : grammar.names[id];
+        return stream.text(text, offset, length);
+    }
+
+    @Override
+    public Token next() {
+        return nextId() == END ? null : token();
+    }
+
+    @Override
+    public Token peek() {
+        if (!peeked) {
+            nextId();
+            peeked = true;
+        }
+        return id == END ? null : token();
+    }
+
+    /**
+     * stops the producer and adds how many times each side waited for the other to metrics
+     */
+    @Override
+    public void close() {
+        ring.close();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        metrics.add("pipeline.producerWaits", ring.fullWaits);
+        metrics.add("pipeline.consumerWaits", ring.emptyWaits);
+    }
+}
@@ -0,0 +1,23 @@
+package com.company;
+
+
+public interface TokenSource extends AutoCloseable {
+    // tokens are pulled one by one by parsers, so input doesn't have to be read completely before parsing
+
+    /**
+     * @return next token and removes it from input, or null if input is finished
+     */
+    Token next();
+
+    /**
+     * @return next token without removing it from input, or null if input is finished
+     */
+    Token peek();
+
+    /**
+     * releases its file if it has one
+     */
+    @Override
+    default void close() {
+    }
+}
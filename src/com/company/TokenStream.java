@@ -0,0 +1,129 @@
+package com.company;
+
+import java.nio.ByteBuffer;
+
+
+public class TokenStream implements IdTokenSource {
+    // tokens of a source that a Lexer scans on demand, e.x: a memory mapped file
+    // a token is just its terminal id and offset and length of its lexeme in source,
+    // a Token and a String are only created when they are asked for (next(), peek() and lexeme()),
+    // text() is a Lexeme view of source bytes
+    // a byte that no token starts with is an UNKNOWN token of length 1
+
+    private final Lexer lexer;
+    private final ByteBuffer source;
+    private final Grammar grammar;
+    private final int limit;
+    private int position;               // where next token is searched from
+    private boolean finished;           // "$" is returned
+    private int id = END, offset, length;           // current token
+    private boolean peeked;                         // current token is only peeked, next call returns it again
+    private final Lexeme text = new Lexeme();
+
+    TokenStream(Lexer lexer, ByteBuffer source) {
+        this.lexer = lexer;
+        this.source = source;
+        this.grammar = lexer.grammar;
+        this.position = source.position();
+        this.limit = source.limit();
+    }
+
+    @Override
+    public int nextId() {
+        if (peeked) {
+            peeked = false;
+            return id;
+        }
+        int[] next = lexer.next, accept = lexer.accept, classOf = lexer.classOf;
+        int classCount = lexer.classCount;
+        while (position < limit) {
+            // longest match, the DFA goes on until it has no move and the last accepting state is taken
+            int state = 0, end = -1, token = -1;
+            for (int i = position; i < limit; i++) {
+                state = next[state * classCount + classOf[source.get(i) & 0xff]];
+                if (state == -1)
+                    break;
+                if (accept[state] != -1) {
+                    token = accept[state];
+                    end = i + 1;
+                }
+            }
+            if (end == -1)
+                return token(UNKNOWN, position, 1);
+            if (token != Lexer.IGNORE)
+                return token(token, position, end - position);
+            position = end;
+        }
+        if (finished)
+            return token(END, limit, 0);
+        finished = true;
+        return token(grammar.endMarker, limit, 0);
+    }
+
+    private int token(int id, int offset, int length) {
+        this.id = id;
+        this.offset = offset;
+        this.length = length;
+        position = offset + length;
+        return id;
+    }
+
+    /**
+     * @return offset of lexeme of current token in source
+     */
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return lexeme of current token decoded from UTF-8 source
+     */
+    public String lexeme() {
+        return lexeme(offset, length);
+    }
+
+    @Override
+    public CharSequence text() {
+        return text.set(source, offset, length);
+    }
+
+    /**
+     * only absolute gets are used, so it can be called from another thread than the one that scans (TokenPipeline)
+     */
+    Lexeme text(Lexeme into, int offset, int length) {
+        return into.set(source, offset, length);
+    }
+
+    String lexeme(int offset, int length) {
+        return text(new Lexeme(), offset, length).toString();
+    }
+
+    /**
+     * @return current token as a Token, type of an unknown lexeme has a space, so it's never a terminal
+     */
+    @Override
+    public Token token() {
+        if (id == grammar.endMarker)
+            return new Token(Grammar.END);
+        String lexeme = lexeme();
+        return new Token(id == UNKNOWN ? "unknown " + lexeme : grammar.names[id], lexeme);
+    }
+
+    @Override
+    public Token next() {
+        return nextId() == END ? null : token();
+    }
+
+    @Override
+    public Token peek() {
+        if (!peeked) {
+            nextId();
+            peeked = true;
+        }
+        return id == END ? null : token();
+    }
+}
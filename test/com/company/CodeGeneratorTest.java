@@ -0,0 +1,153 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class CodeGeneratorTest {
+    // parsers generated by CodeGenerator and compiled in process get the same result and the same reductions
+    // as LRParser and LLParser of their table, on accepted inputs and on rejected ones
+
+    private static final String[] TYPES = {ParseTables.LR0, ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1};
+
+    @Test
+    void gram3ParsersOfEveryTable() throws Exception {
+        ParseTables tables = new TableGenerator(new Grammar(Grammar.readRules("gram3.txt"))).generate(false);
+        // random expressions, half of them get a random word somewhere that may make them wrong
+        ArrayList<List<String>> inputs = new ArrayList<>();
+        String[] words = {"id", "+", "-"};
+        Random random = new Random(18);
+        for (int n = 0; n < 300; n++) {
+            ArrayList<String> input = new ArrayList<>();
+            for (int i = random.nextInt(6); i >= 0; i--) {
+                input.add("id");
+                if (i > 0)
+                    input.add(words[1 + random.nextInt(2)]);
+            }
+            if (n % 2 == 0)
+                input.set(random.nextInt(input.size()), words[random.nextInt(3)]);
+            input.add(Grammar.END);
+            inputs.add(input);
+        }
+        inputs.add(Arrays.asList(Grammar.END));
+        inputs.add(Arrays.asList("id", "id"));
+        inputs.add(Arrays.asList("id", "+", "id"));
+        inputs.add(new ArrayList<>());
+        int accepted = 0;
+        Generated ll = new Generated(tables, ParseTables.LL1);
+        for (List<String> input : inputs) {
+            ReduceLog log = new ReduceLog();
+            String result = tables.llParser().listener(log).parse(new ListTokenSource(tokens(input)));
+            ll.check(input, result, log.productions);
+            accepted += result.equals("acc") ? 1 : 0;
+        }
+        assertTrue(accepted > 50 && accepted < inputs.size() - 50, accepted + " accepted");
+        for (String type : TYPES) {
+            if (tables.hasConflict(type))
+                continue;
+            Generated lr = new Generated(tables, type);
+            for (List<String> input : inputs) {
+                ReduceLog log = new ReduceLog();
+                String result = tables.lrParser(type).listener(log).parse(new ListTokenSource(tokens(input)));
+                lr.check(input, result, log.productions);
+            }
+        }
+    }
+
+    @Test
+    void gram4ParsersOfTokens4AndItsMutations() throws Exception {
+        ParseTables tables = new TableGenerator(new Grammar(Grammar.readRules("gram4.txt"))).generate(false);
+        ArrayList<String> types = new ArrayList<>();
+        try (FileTokenSource source = new FileTokenSource("tokens4.txt")) {
+            for (Token token = source.next(); token != null; token = source.next())
+                types.add(token.token);
+        }
+        // tokens4.txt, then a token is deleted or replaced at some places, "$" too
+        ArrayList<List<String>> inputs = new ArrayList<>();
+        inputs.add(types);
+        for (int at = 0; at < types.size(); at += types.size() / 40) {
+            for (String other : new String[]{";", "(", "ident", "ELSE"}) {
+                ArrayList<String> replaced = new ArrayList<>(types);
+                replaced.set(at, other);
+                inputs.add(replaced);
+            }
+            ArrayList<String> deleted = new ArrayList<>(types);
+            deleted.remove(at);
+            inputs.add(deleted);
+        }
+        inputs.add(types.subList(0, types.size() - 1));
+        for (String type : TYPES) {
+            if (tables.hasConflict(type))
+                continue;
+            Generated lr = new Generated(tables, type);
+            for (List<String> input : inputs) {
+                ReduceLog log = new ReduceLog();
+                String result = tables.lrParser(type).listener(log).parse(new ListTokenSource(tokens(input)));
+                lr.check(input, result, log.productions);
+            }
+            assertEquals("acc", lr.parse(inputs.get(0), null), type);
+        }
+    }
+
+    private static ArrayList<Token> tokens(List<String> types) {
+        ArrayList<Token> tokens = new ArrayList<>();
+        for (String type : types)
+            tokens.add(new Token(type));
+        return tokens;
+    }
+
+    private static class Generated {
+        // a parser generated for a table and compiled
+        final Grammar grammar;
+        final String type;
+        final Method parse;
+
+        Generated(ParseTables tables, String type) throws NoSuchMethodException {
+            grammar = tables.grammar;
+            this.type = type;
+            String className = Character.toUpperCase(type.charAt(0)) + type.substring(1) + "TestParser";
+            String code = type.equals(ParseTables.LL1) ? CodeGenerator.llSource(tables, className)
+                    : CodeGenerator.lrSource(tables, type, className);
+            parse = CodeGenerator.compile(className, code).getMethod("parse", int[].class, int.class, IntConsumer.class);
+        }
+
+        String parse(List<String> input, IntConsumer reduces) throws Exception {
+            int[] terminals = new int[input.size()];
+            for (int i = 0; i < terminals.length; i++)
+                terminals[i] = grammar.id(input.get(i));
+            return (String) parse.invoke(null, terminals, terminals.length, reduces);
+        }
+
+        /**
+         * checks that (@param)input gets (@param)result and (@param)productions are reduced like the table parser
+         */
+        void check(List<String> input, String result, List<Integer> productions) throws Exception {
+            // input of gram4 is long, so a message only has its size and where it first differs from tokens4.txt
+            String message = type + " " + (input.size() < 30 ? input.toString() : input.size() + " tokens");
+            ArrayList<Integer> reduced = new ArrayList<>();
+            assertEquals(result, parse(input, reduced::add), message);
+            assertEquals(productions.size(), reduced.size(), message);
+            assertTrue(productions.equals(reduced), message);
+            assertEquals(result, parse(input, null), message);
+        }
+    }
+
+    private static class ReduceLog implements ParseListener {
+        final ArrayList<Integer> productions = new ArrayList<>();
+
+        @Override
+        public void onReduce(int production, int rhsLength) {
+            productions.add(production);
+        }
+    }
+}
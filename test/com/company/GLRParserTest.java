@@ -0,0 +1,134 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+class GLRParserTest {
+    // GLRParser against LRParser on a grammar without conflicts,
+    // and against counted derivations on the ambiguous if/else grammar
+
+    private static final ArrayList<String> IF_ELSE = new ArrayList<>(Arrays.asList(
+            "S-> STMT ",
+            "STMT-> if c STMT ",
+            "STMT-> if c STMT else STMT ",
+            "STMT-> a "));
+
+    @Test
+    void sameTreeAsLRParserWithoutConflicts() throws IOException {
+        ParseTables tables = new TableGenerator(new Grammar(Grammar.readRules("gram2.txt"))).generate(false);
+        List<Token> tokens = read("tokens2.txt");
+        for (String type : new String[]{ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1}) {
+            assertFalse(tables.hasConflict(type), type);
+            ReduceLog reduces = new ReduceLog();
+            assertEquals("acc", tables.lrParser(type).listener(reduces).parse(new ListTokenSource(tokens)), type);
+
+            GLRParser glr = tables.glrParser(type);
+            assertEquals("acc", glr.parse(new ListTokenSource(tokens)), type);
+            assertEquals(1, glr.forest().treeCount(), type);
+            // reduces of an LR parse are the post order of its tree
+            ArrayList<Integer> postOrder = new ArrayList<>();
+            postOrder(glr.forest(), postOrder);
+            assertEquals(reduces.productions, postOrder, type);
+        }
+    }
+
+    @Test
+    void ifElseConflictIsTheOnlyOneAndHasNoDefault() {
+        ParseTables tables = new TableGenerator(new Grammar(IF_ELSE)).generate(false);
+        for (String type : new String[]{ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1}) {
+            // a shift/reduce on "else" after "if c STMT", LR(1) has it in more than one state
+            assertFalse(tables.conflicts.get(type).isEmpty(), type);
+            for (Conflict conflict : tables.conflicts.get(type)) {
+                assertEquals("else", conflict.column, type);
+                // GLRParser only forks on what the state really has, not on a default reduction
+                assertEquals(ParseTable.ERROR, tables.lrTables.get(type).defaultAction[Integer.parseInt(conflict.row)]);
+            }
+        }
+    }
+
+    @Test
+    void ifElseTreesAreEveryWayToMatchElses() {
+        Grammar grammar = new Grammar(IF_ELSE);
+        ParseTables tables = new TableGenerator(grammar).generate(false);
+        // every string of up to 9 words
+        String[] words = {"if c", "a", "else"};
+        for (int length = 1; length <= 9; length++) {
+            for (int n = 0; n < Math.pow(words.length, length); n++) {
+                ArrayList<String> input = new ArrayList<>();
+                for (int i = 0, rest = n; i < length; i++, rest /= words.length)
+                    input.addAll(Arrays.asList(words[rest % words.length].split(" ")));
+                long expected = derivations(input, 0, input.size());
+                for (String type : new String[]{ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1}) {
+                    GLRParser glr = tables.glrParser(type);
+                    String result = glr.parse(new ListTokenSource(tokens(input)));
+                    if (expected == 0) {
+                        assertEquals("error", result, type + " " + input);
+                        assertNull(glr.forest(), type + " " + input);
+                    } else {
+                        assertEquals("acc", result, type + " " + input);
+                        assertEquals(expected, glr.forest().treeCount(), type + " " + input);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of ways that STMT derives words from..to
+     */
+    private static long derivations(List<String> words, int from, int to) {
+        if (to - from == 1 && words.get(from).equals("a"))
+            return 1;
+        if (to - from < 3 || !words.get(from).equals("if") || !words.get(from + 1).equals("c"))
+            return 0;
+        long count = derivations(words, from + 2, to);
+        for (int k = from + 3; k < to - 1; k++)
+            if (words.get(k).equals("else"))
+                count += derivations(words, from + 2, k) * derivations(words, k + 1, to);
+        return count;
+    }
+
+    private static void postOrder(ForestNode node, List<Integer> productions) {
+        if (node.alternativeCount() == 0)
+            return;
+        for (ForestNode child : node.children(0))
+            postOrder(child, productions);
+        productions.add(node.production(0));
+    }
+
+    private static List<Token> tokens(List<String> words) {
+        ArrayList<Token> tokens = new ArrayList<>();
+        for (String word : words)
+            tokens.add(new Token(word));
+        tokens.add(new Token(Grammar.END));
+        return tokens;
+    }
+
+    private static List<Token> read(String fileName) throws IOException {
+        ArrayList<Token> tokens = new ArrayList<>();
+        try (FileTokenSource source = new FileTokenSource(fileName)) {
+            Token token;
+            while ((token = source.next()) != null)
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static class ReduceLog implements ParseListener {
+        final ArrayList<Integer> productions = new ArrayList<>();
+
+        @Override
+        public void onReduce(int production, int rhsLength) {
+            productions.add(production);
+        }
+    }
+}
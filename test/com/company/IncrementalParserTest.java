@@ -0,0 +1,247 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class IncrementalParserTest {
+    // after every edit(), result, error token and tokens of the document are the same as a fresh parse() of its
+    // tokens, and the result is the same as LRParser's, on gram4.txt and tokens4.txt (functions of a C like language)
+
+    private static final String[] TYPES = {ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1};
+
+    @Test
+    void insertDeleteAndReplaceAtStartMiddleAndEnd() throws IOException {
+        Fixture fixture = new Fixture();
+        List<Integer> ends = fixture.declarationEnds();
+        int middle = ends.get(ends.size() / 2);
+        for (String type : TYPES) {
+            Document document = fixture.document(type);
+            int n = document.tokens.size();
+            List<Token> copy = new ArrayList<>(document.tokens.subList(0, ends.get(0)));
+            // a whole declaration is inserted and deleted
+            document.edit(0, 0, copy);
+            document.edit(0, copy.size(), new ArrayList<>());
+            document.edit(middle, middle, copy);
+            document.edit(middle, middle + copy.size(), new ArrayList<>());
+            document.edit(n, n, copy);
+            document.edit(n, n + copy.size(), new ArrayList<>());
+            document.edit(0, ends.get(0), new ArrayList<>());
+            document.edit(0, 0, copy);
+            // a token is replaced by itself, by another token of the same type and by one that doesn't fit
+            for (int at : new int[]{0, middle, n - 1}) {
+                document.edit(at, at + 1, tokens(document.tokens.get(at)));
+                document.edit(at, at + 1, tokens(new Token("(")));
+                document.edit(at, at + 1, tokens(fixture.tokens.get(at)));
+            }
+            int literal = fixture.find("INT_LIT", middle);
+            document.edit(literal, literal + 1, tokens(new Token("INT_LIT", "0")));
+            document.edit(literal, literal + 1, tokens(new Token("ident", "x")));
+            // more tokens than it deletes and fewer than it inserts
+            document.edit(literal, literal + 1, tokens(new Token("ident", "x"), new Token("+"), new Token("INT_LIT", "1")));
+            document.edit(literal, literal + 3, tokens(fixture.tokens.get(literal)));
+        }
+    }
+
+    @Test
+    void everyTokenReplacedByOthers() throws IOException {
+        // some replacements leave a stack as deep as the old one but with other states, e.x: "IF" -> "WHILE"
+        // before an "ELSE", the parse mustn't join the old one there
+        Fixture fixture = new Fixture();
+        List<Integer> ends = fixture.declarationEnds();
+        String[] others = {"IF", "WHILE", "ELSE", "ident", "INT_LIT", ")", ";"};
+        for (String type : TYPES) {
+            Document document = fixture.document(type, ends.get(3));
+            for (int at = 0; at < document.tokens.size(); at++)
+                for (String other : others) {
+                    document.edit(at, at + 1, tokens(new Token(other)));
+                    document.edit(at, at + 1, tokens(fixture.tokens.get(at)));
+                }
+            assertEquals("acc", document.last, type);
+        }
+    }
+
+    @Test
+    void gapMovesBackwardsAndForwards() throws IOException {
+        Fixture fixture = new Fixture();
+        List<Integer> ends = fixture.declarationEnds();
+        for (String type : TYPES) {
+            Document document = fixture.document(type);
+            List<Token> declaration = new ArrayList<>(document.tokens.subList(0, ends.get(0)));
+            // the gap is left at each edit, so inserts from the end to the start move it backwards,
+            // then the copies are deleted from the start to the end, each one is still after the ones before it
+            ArrayList<Integer> at = new ArrayList<>();
+            for (int i = ends.size() - 2; i >= 0; i -= Math.max(1, ends.size() / 7)) {
+                at.add(0, ends.get(i));
+                document.edit(ends.get(i), ends.get(i), declaration);
+            }
+            for (int from : at)
+                document.edit(from, from + declaration.size(), new ArrayList<>());
+            assertEquals(fixture.tokens, document.tokens, type);
+            assertEquals("acc", document.last, type);
+        }
+    }
+
+    @Test
+    void editsAfterAFailureAndAnEditThatFixesIt() throws IOException {
+        Fixture fixture = new Fixture();
+        List<Integer> ends = fixture.declarationEnds();
+        for (String type : TYPES) {
+            Document document = fixture.document(type);
+            int broken = ends.get(ends.size() / 2) + 3;
+            Token removed = document.tokens.get(broken);
+            document.edit(broken, broken + 1, new ArrayList<>());
+            assertEquals("error", document.last, type);
+            // after the failure, before it and one that moves it
+            int after = ends.get(ends.size() - 2) - 1;
+            Token saved = document.tokens.get(after);
+            document.edit(after, after + 1, tokens(new Token("{")));
+            document.edit(after, after + 1, tokens(saved));
+            document.edit(ends.get(1), ends.get(1), new ArrayList<>(document.tokens.subList(0, ends.get(0))));
+            broken += ends.get(0);
+            saved = document.tokens.get(ends.get(1));
+            document.edit(ends.get(1), ends.get(1) + 1, tokens(new Token(";")));
+            document.edit(ends.get(1), ends.get(1) + 1, tokens(saved));
+            document.edit(0, ends.get(0), new ArrayList<>());
+            broken -= ends.get(0);
+            // the missing token is typed again
+            document.edit(broken, broken, tokens(removed));
+            assertEquals("acc", document.last, type);
+            // a failure at the end: "$" comes too early
+            int n = document.tokens.size();
+            document.edit(n - 1, n, new ArrayList<>());
+            assertEquals(document.tokens.size(), document.parser.errorToken(), type);
+            document.edit(n - 1, n - 1, tokens(fixture.tokens.get(fixture.tokens.size() - 1)));
+            assertEquals("acc", document.last, type);
+        }
+    }
+
+    @Test
+    void manyEditsAreCompacted() throws IOException {
+        Fixture fixture = new Fixture();
+        List<Integer> ends = fixture.declarationEnds();
+        for (String type : TYPES) {
+            // a short document, so its first parse leaves few entries and compactions come soon
+            Document document = fixture.document(type, ends.get(2));
+            Metrics metrics = new Metrics();
+            document.parser.metrics(metrics);
+            String compactions = "parse." + type + ".incremental.compactions";
+            List<Token> declaration = new ArrayList<>(document.tokens.subList(0, ends.get(0)));
+            for (int i = 0; i < 2000 && metrics.getValues().getOrDefault(compactions, 0L) < 3; i++) {
+                // a copy of the first declaration is inserted and deleted after it, then before it
+                int at = i % 4 < 2 ? ends.get(0) : 0;
+                if (i % 2 == 0)
+                    document.edit(at, at, declaration);
+                else
+                    document.edit(at, at + declaration.size(), new ArrayList<>());
+            }
+            assertTrue(metrics.getValues().getOrDefault(compactions, 0L) >= 3, type);
+            // an edit after the compactions
+            document.edit(0, 1, tokens(new Token(")")));
+            document.edit(0, 1, tokens(fixture.tokens.get(0)));
+            assertEquals("acc", document.last, type);
+        }
+    }
+
+    private static List<Token> tokens(Token... tokens) {
+        ArrayList<Token> list = new ArrayList<>();
+        for (Token token : tokens)
+            list.add(token);
+        return list;
+    }
+
+    private static class Fixture {
+        final ParseTables tables;
+        final List<Token> tokens = new ArrayList<>();       // tokens4.txt without "$"
+
+        Fixture() throws IOException {
+            tables = new TableGenerator(new Grammar(Grammar.readRules("gram4.txt"))).generate(false);
+            try (FileTokenSource source = new FileTokenSource("tokens4.txt")) {
+                for (Token token = source.next(); token != null && !token.token.equals(Grammar.END); token = source.next())
+                    tokens.add(token);
+            }
+        }
+
+        Document document(String type) {
+            return document(type, tokens.size());
+        }
+
+        /**
+         * @return a document of the first (@param)count tokens
+         */
+        Document document(String type, int count) {
+            assertTrue(!tables.hasConflict(type), type);
+            Document document = new Document(tables, type, new ArrayList<>(tokens.subList(0, count)));
+            assertEquals("acc", document.last, type);
+            return document;
+        }
+
+        /**
+         * @return index after every declaration at the top (a "}" or ";" out of any braces)
+         */
+        List<Integer> declarationEnds() {
+            ArrayList<Integer> ends = new ArrayList<>();
+            int depth = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                String type = tokens.get(i).token;
+                depth += type.equals("{") ? 1 : type.equals("}") ? -1 : 0;
+                if (depth == 0 && (type.equals("}") || type.equals(";")))
+                    ends.add(i + 1);
+            }
+            return ends;
+        }
+
+        /**
+         * @return index of the first token of (@param)type from (@param)from
+         */
+        int find(String type, int from) {
+            for (int i = from; ; i++)
+                if (tokens.get(i).token.equals(type))
+                    return i;
+        }
+    }
+
+    private static class Document {
+        // an IncrementalParser and the tokens it should have, every edit is checked against a fresh parse of them
+        final ParseTables tables;
+        final String type;
+        final IncrementalParser parser;
+        final List<Token> tokens;
+        String last;            // result of last parse or edit
+
+        Document(ParseTables tables, String type, List<Token> tokens) {
+            this.tables = tables;
+            this.type = type;
+            this.tokens = tokens;
+            parser = tables.incrementalParser(type);
+            last = parser.parse(new ListTokenSource(tokens));
+            check();
+        }
+
+        void edit(int from, int to, List<Token> inserted) {
+            tokens.subList(from, to).clear();
+            tokens.addAll(from, inserted);
+            last = parser.edit(from, to, new ListTokenSource(inserted));
+            check();
+        }
+
+        private void check() {
+            IncrementalParser fresh = tables.incrementalParser(type);
+            String message = type + " " + tokens.size() + " tokens";
+            assertEquals(fresh.parse(new ListTokenSource(tokens)), last, message);
+            assertEquals(fresh.errorToken(), parser.errorToken(), message);
+            assertEquals(tokens.size(), parser.tokenCount(), message);
+            for (int i = 0; i < tokens.size(); i++)
+                assertEquals(fresh.terminal(i), parser.terminal(i), message);
+            ArrayList<Token> input = new ArrayList<>(tokens);
+            input.add(new Token(Grammar.END));
+            assertEquals(tables.lrParser(type).parse(new ListTokenSource(input)), last, message);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+
+class LexerTest {
+    // tokens of LexerGenerator/TokenStream against a table of expected tokens,
+    // against a longest match scanner made of java.util.regex patterns, and against types of tokens4.txt
+
+    private static final List<String> RULES = Arrays.asList(
+            "S-> if ID = == NUM STR + - – ( ) ; ");
+    private static final String ID = "%token ID [A-Za-z_][A-Za-z0-9_]*";
+    private static final String NUM = "%token NUM [0-9]+(\\.[0-9]+)?";
+    private static final String STR = "%token STR \"[^\"\\n]*\"";
+    private static final String SPACE = "%ignore [ \\t\\r\\n]+|//[^\\n]*";
+
+    // declarations, source, expected tokens as "type lexeme"
+    private static final String[][][] CASES = {
+            // classes and ranges
+            {{ID, SPACE}, {"a_1 Z9 _"}, {"ID a_1", "ID Z9", "ID _"}},
+            {{NUM, SPACE}, {"3.25 7 10.0"}, {"NUM 3.25", "NUM 7", "NUM 10.0"}},
+            {{STR, SPACE}, {"\"a b\" \"\""}, {"STR \"a b\"", "STR \"\""}},
+            {{"%token ID [^0-9 ]+", SPACE}, {"ab 12"}, {"ID ab", "unknown 1", "unknown 2"}},
+            {{"%token NUM \\d+", "%token ID \\w+", "%ignore \\s+"}, {"42 x_1\t7"}, {"NUM 42", "ID x_1", "NUM 7"}},
+            // longest match, it backs up to the last accepting state
+            {{ID, NUM, SPACE}, {"=== iff if"}, {"== ==", "= =", "ID iff", "if if"}},
+            {{ID, NUM, SPACE}, {"7.x"}, {"NUM 7", "unknown .", "ID x"}},
+            // equal lengths: names before regexes, earlier declarations before later ones
+            {{"%token ID [a-z]+", "%token NUM [a-c]+"}, {"abc"}, {"ID abc"}},
+            {{"%token NUM [a-c]+", "%token ID [a-z]+"}, {"abc"}, {"NUM abc"}},
+            {{"%token ID [a-z]+"}, {"if"}, {"if if"}},
+            // %ignore
+            {{ID, SPACE}, {" \t a // if b\n\r\nc //"}, {"ID a", "ID c"}},
+            {{ID, "%ignore ~"}, {"a~~b"}, {"ID a", "ID b"}},
+            // non ASCII bytes: a literal of 3 bytes next to "-" and bytes of a regex, [ ] only has ASCII chars
+            {{ID, SPACE}, {"a–b-c"}, {"ID a", "– –", "ID b", "- -", "ID c"}},
+            {{"%token ID ([a-z]|\\xc3(\\xb1|\\xa9))+", SPACE}, {"caña été"}, {"ID caña", "ID été"}},
+            // edge strings
+            {{ID, SPACE}, {""}, {}},
+            {{ID, SPACE}, {" \n\t "}, {}},
+            {{ID, SPACE}, {"@"}, {"unknown @"}},
+            {{ID, SPACE}, {"a"}, {"ID a"}},
+    };
+
+    @Test
+    void tableOfCases() {
+        for (String[][] c : CASES) {
+            Lexer lexer = lexer(Arrays.asList(c[0]));
+            assertEquals(Arrays.asList(c[2]), scan(lexer, c[1][0]), Arrays.toString(c[0]) + " " + c[1][0]);
+        }
+    }
+
+    @Test
+    void sameTokensAsRegexScanner() throws IOException {
+        List<String> declarations = Arrays.asList(ID, NUM, STR, SPACE);
+        Lexer lexer = lexer(declarations);
+        Reference reference = new Reference(lines(declarations), new Grammar(lines(declarations)));
+        String source = new String(Files.readAllBytes(Paths.get("input.txt")), StandardCharsets.UTF_8);
+        assertEquals(reference.scan(source), scan(lexer, source), "input.txt");
+        // random strings of bytes that start or end tokens
+        String alphabet = "ab1if=+-;().\" \n/9_";
+        Random random = new Random(21);
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder s = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; i--)
+                s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            assertEquals(reference.scan(s.toString()), scan(lexer, s.toString()), s.toString());
+        }
+    }
+
+    @Test
+    void minimizedDfaHasTheFewestStates() {
+        // (a|b)*abb needs 4 states: nothing, a, ab and abb at the end of what is read
+        Lexer lexer = onlyId("(a|b)*abb");
+        assertEquals(4, lexer.stateCount());
+        assertEquals(Arrays.asList("ID abbbabaabb", "unknown a", "unknown b"), scan(lexer, "abbbabaabbab"));
+        // a regex written in another way has the same minimized DFA and the same tokens
+        Lexer other = onlyId("(b|a)*(ab|abb|abbb*)b*(abb)*");
+        Lexer same = onlyId("(a|b)*ab+");
+        assertEquals(same.stateCount(), other.stateCount());
+        Random random = new Random(4);
+        for (int n = 0; n < 500; n++) {
+            StringBuilder s = new StringBuilder();
+            for (int i = random.nextInt(12); i > 0; i--)
+                s.append(random.nextBoolean() ? 'a' : 'b');
+            assertEquals(scan(same, s.toString()), scan(other, s.toString()), s.toString());
+        }
+    }
+
+    @Test
+    void lexemesOfTokens4AreLexedAsTheirTypes() throws IOException {
+        // gram4.txt with its identifiers and literals declared, source is every lexeme of tokens4.txt
+        ArrayList<String> lines = Grammar.readRules("gram4.txt");
+        lines.add("%token ident [A-Za-z_][A-Za-z0-9_]*");
+        lines.add("%token INT_LIT [0-9]+");
+        lines.add("%token FLOAT_LIT [0-9]+\\.[0-9]+");
+        lines.add("%ignore [ \\n]+");
+        Grammar grammar = new Grammar(lines);
+        Lexer lexer = LexerGenerator.compile(lines, grammar, Metrics.NONE);
+        assertNotNull(lexer);
+
+        StringBuilder source = new StringBuilder();
+        ArrayList<String> expected = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get("tokens4.txt"), StandardCharsets.UTF_8)) {
+            int comma = line.lastIndexOf(',', line.length() - 2);
+            String type = line.substring(0, comma), lexeme = line.substring(comma + 1);
+            if (type.equals(Grammar.END))
+                break;
+            source.append(lexeme).append(expected.size() % 10 == 9 ? "\n" : " ");
+            expected.add(type + " " + lexeme);
+        }
+        assertEquals(expected, scan(lexer, source.toString()));
+    }
+
+    private static ArrayList<String> lines(List<String> declarations) {
+        ArrayList<String> lines = new ArrayList<>(RULES);
+        lines.addAll(declarations);
+        return lines;
+    }
+
+    private static Lexer lexer(List<String> declarations) {
+        ArrayList<String> lines = lines(declarations);
+        return LexerGenerator.compile(lines, new Grammar(lines), Metrics.NONE);
+    }
+
+    /**
+     * @return lexer of a grammar whose only terminal is ID
+     */
+    private static Lexer onlyId(String regex) {
+        ArrayList<String> lines = new ArrayList<>(Arrays.asList("S-> ID ", Lexer.TOKEN + " ID " + regex));
+        return LexerGenerator.compile(lines, new Grammar(lines), Metrics.NONE);
+    }
+
+    /**
+     * @return "type lexeme" of every token before "$"
+     */
+    private static List<String> scan(Lexer lexer, String source) {
+        ArrayList<String> tokens = new ArrayList<>();
+        TokenStream stream = lexer.scan(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+        for (Token token = stream.next(); token != null && !token.token.equals(Grammar.END); token = stream.next())
+            tokens.add(token.token.startsWith("unknown ") ? token.token : token.token + " " + token.lexeme);
+        return tokens;
+    }
+
+    private static class Reference {
+        // longest match with java.util.regex, patterns are tried in the order of LexerGenerator.compile()
+        // on ASCII text chars are bytes, so both see the same lexemes
+        final ArrayList<Pattern> patterns = new ArrayList<>();
+        final ArrayList<String> types = new ArrayList<>();         // null for %ignore
+
+        Reference(List<String> lines, Grammar grammar) {
+            ArrayList<String> declared = new ArrayList<>();
+            for (String line : lines)
+                if (line.startsWith(Lexer.TOKEN + " "))
+                    declared.add(line.split(" ")[1]);
+            for (int t = 0; t < grammar.terminalCount; t++)
+                if (t != grammar.endMarker && !declared.contains(grammar.names[t]))
+                    add(Pattern.quote(grammar.names[t]), grammar.names[t]);
+            for (String line : lines)
+                if (line.startsWith(Lexer.TOKEN + " "))
+                    add(line.substring(line.indexOf(' ', Lexer.TOKEN.length() + 1) + 1), line.split(" ")[1]);
+            for (String line : lines)
+                if (line.startsWith(Lexer.IGNORE_DECLARATION + " "))
+                    add(line.substring(Lexer.IGNORE_DECLARATION.length() + 1), null);
+        }
+
+        private void add(String regex, String type) {
+            patterns.add(Pattern.compile(regex));
+            types.add(type);
+        }
+
+        List<String> scan(String source) {
+            ArrayList<String> tokens = new ArrayList<>();
+            int position = 0;
+            while (position < source.length()) {
+                int best = -1, end = position;
+                for (int i = 0; i < patterns.size(); i++) {
+                    Matcher matcher = patterns.get(i).matcher(source);
+                    // a backtracking matcher doesn't find the longest match by itself, so every end is tried
+                    for (int e = source.length(); e > end; e--)
+                        if (matcher.region(position, e).matches()) {
+                            best = i;
+                            end = e;
+                            break;
+                        }
+                }
+                if (best == -1) {
+                    tokens.add("unknown " + source.charAt(position));
+                    position++;
+                } else {
+                    if (types.get(best) != null)
+                        tokens.add(types.get(best) + " " + source.substring(position, end));
+                    position = end;
+                }
+            }
+            return tokens;
+        }
+    }
+}
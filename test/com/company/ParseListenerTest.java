@@ -0,0 +1,181 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+
+class ParseListenerTest {
+    // LRParser of every table without conflicts and LLParser give a listener the same shifts and reduces,
+    // the reduce of start symbol is the last one (ACCEPT), and SemanticActions gets the same value from both
+
+    private static final String[] TYPES = {ParseTables.LR0, ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1};
+
+    // LL(1) and LR(0): an expression in prefix notation, e.x: "+ 1 2" is 3
+    private static final List<String> PREFIX = Arrays.asList(
+            "S-> E ", "E-> + E E ", "E-> - E E ", "E-> ( E ) ", "E-> num ");
+
+    // input, value
+    private static final String[][] PREFIX_CASES = {
+            {"7", "7"},
+            {"+ 1 2", "3"},
+            {"- + 1 2 ( 4 )", "-1"},
+            {"+ 7 - 10 ( ( 3 ) )", "14"},
+            {"- - - 1 2 3 + 4 5", "-13"},
+    };
+
+    // gram3.txt: EXPR-> TERM REST, REST-> + EXPR | - EXPR | #, with ids as numbers it's right associative
+    private static final String[][] GRAM3_CASES = {
+            {"5", "5"},
+            {"5 + 3", "8"},
+            {"5 - 3 + 1", "1"},
+            {"9 - 1 - 2 + 4 - 8", "6"},
+    };
+
+    @Test
+    void prefixExpressionsOnEveryTable() {
+        ParseTables tables = new TableGenerator(new Grammar(new ArrayList<>(PREFIX))).generate(false);
+        for (String[] c : PREFIX_CASES) {
+            SemanticActions calc = new SemanticActions(tables.grammar)
+                    .onToken("num", (terminal, lexeme) -> Long.parseLong(lexeme.toString()))
+                    .onRule("E-> + E E", (values, first) -> values[first + 1] + values[first + 2])
+                    .onRule("E-> - E E", (values, first) -> values[first + 1] - values[first + 2])
+                    .onRule("E-> ( E )", (values, first) -> values[first + 1]);
+            check(tables, Arrays.asList(TYPES), tokens(c[0], "num"), calc, Long.parseLong(c[1]));
+        }
+    }
+
+    @Test
+    void gram3OnEveryTableWithoutConflicts() throws IOException {
+        ParseTables tables = new TableGenerator(new Grammar(Grammar.readRules("gram3.txt"))).generate(false);
+        // LR(0) reduces "REST-> #" on every token, so it has conflicts with "+" and "-"
+        assertEquals(Arrays.asList(ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1), typesWithoutConflicts(tables));
+        for (String[] c : GRAM3_CASES) {
+            SemanticActions calc = new SemanticActions(tables.grammar)
+                    .onToken("id", (terminal, lexeme) -> Long.parseLong(lexeme.toString()))
+                    .onRule("EXPR-> TERM REST", (values, first) -> values[first] + values[first + 1])
+                    .onRule("REST-> + EXPR", (values, first) -> values[first + 1])
+                    .onRule("REST-> - EXPR", (values, first) -> -values[first + 1]);
+            check(tables, typesWithoutConflicts(tables), tokens(c[0], "id"), calc, Long.parseLong(c[1]));
+        }
+    }
+
+    @Test
+    void rejectedInputsGetTheSameEventsBeforeTheError() {
+        ParseTables tables = new TableGenerator(new Grammar(new ArrayList<>(PREFIX))).generate(false);
+        for (String input : new String[]{"+ 1", "( 1 2 )", "1 1", ")"}) {
+            ArrayList<Token> tokens = tokens(input, "num");
+            Recorder ll = new Recorder();
+            LLParser llParser = tables.llParser().listener(ll);
+            assertEquals("error", llParser.parse(new ListTokenSource(tokens)), input);
+            assertFalse(ll.events.contains("accept"), input);
+            for (String type : TYPES) {
+                Recorder lr = new Recorder();
+                LRParser lrParser = tables.lrParser(type).listener(lr);
+                assertEquals("error", lrParser.parse(new ListTokenSource(tokens)), input);
+                // LL finds an error when it predicts, LR may do some reductions before it finds that error,
+                // but both have read the same tokens, the one that fails too
+                assertEquals(ll.shifts(), lr.shifts(), type + " " + input);
+                assertEquals(llParser.tokenCount(), lrParser.tokenCount(), type + " " + input);
+                assertFalse(lr.events.contains("accept"), type + " " + input);
+            }
+        }
+    }
+
+    /**
+     * parses (@param)tokens with LLParser and LRParser of (@param)types, events of the parses must be the same
+     * and (@param)calc must get (@param)value from all of them
+     */
+    private static void check(ParseTables tables, List<String> types, ArrayList<Token> tokens, SemanticActions calc
+            , long value) {
+        Recorder ll = new Recorder();
+        LLParser llParser = tables.llParser().listener(ll);
+        assertEquals("acc", llParser.parse(new ListTokenSource(tokens)), tokens.toString());
+        // every token is read, "$" too
+        assertEquals(tokens.size(), llParser.tokenCount());
+        assertEquals(tables.grammar.startSymbol, tables.grammar.lhs[ll.lastReduce()]);
+        assertEquals(value, result(tables.llParser().listener(calc), tokens, calc));
+        for (String type : types) {
+            Recorder lr = new Recorder();
+            LRParser lrParser = tables.lrParser(type).listener(lr);
+            assertEquals("acc", lrParser.parse(new ListTokenSource(tokens)), type);
+            assertEquals(ll.events, lr.events, type + " " + tokens);
+            assertEquals(tokens.size(), lrParser.tokenCount(), type);
+            assertEquals(value, result(tables.lrParser(type).listener(calc), tokens, calc), type);
+        }
+    }
+
+    private static long result(LLParser parser, ArrayList<Token> tokens, SemanticActions calc) {
+        assertEquals("acc", parser.parse(new ListTokenSource(tokens)));
+        return calc.result();
+    }
+
+    private static long result(LRParser parser, ArrayList<Token> tokens, SemanticActions calc) {
+        assertEquals("acc", parser.parse(new ListTokenSource(tokens)));
+        return calc.result();
+    }
+
+    private static List<String> typesWithoutConflicts(ParseTables tables) {
+        ArrayList<String> types = new ArrayList<>();
+        for (String type : TYPES)
+            if (!tables.hasConflict(type))
+                types.add(type);
+        return types;
+    }
+
+    /**
+     * @param number type of the words that are numbers
+     * @return tokens of words of (@param)input and "$"
+     */
+    private static ArrayList<Token> tokens(String input, String number) {
+        ArrayList<Token> tokens = new ArrayList<>();
+        for (String word : input.split(" "))
+            tokens.add(Character.isDigit(word.charAt(0)) ? new Token(number, word) : new Token(word));
+        tokens.add(new Token(Grammar.END));
+        return tokens;
+    }
+
+    private static class Recorder implements ParseListener {
+        // shifts, reduces and accept in the order they come, predicts and matches of LL aren't recorded
+        final ArrayList<String> events = new ArrayList<>();
+
+        @Override
+        public void onStart() {
+            events.clear();
+        }
+
+        @Override
+        public void onShift(int terminal, CharSequence lexeme) {
+            events.add("shift " + terminal + " " + lexeme);
+        }
+
+        @Override
+        public void onReduce(int production, int rhsLength) {
+            events.add("reduce " + production + " " + rhsLength);
+        }
+
+        @Override
+        public void onAccept() {
+            events.add("accept");
+        }
+
+        List<String> shifts() {
+            ArrayList<String> shifts = new ArrayList<>();
+            for (String event : events)
+                if (event.startsWith("shift "))
+                    shifts.add(event);
+            return shifts;
+        }
+
+        int lastReduce() {
+            String last = events.get(events.size() - 2);
+            return Integer.parseInt(last.split(" ")[1]);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+
+class SyntaxTreeTest {
+    // trees of LRParser and LLParser are node by node the same (kind, parent, children, token and byte spans),
+    // a node spans exactly its children, and a rejected parse has no root
+
+    private static final String[] LR_TYPES = {ParseTables.LR0, ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1};
+
+    @Test
+    void llAndLrBuildTheSameTree() throws IOException {
+        Language gram3 = new Language("gram3.txt", "%token id [a-z][a-z0-9]*", "%ignore [ ]+");
+        for (String source : new String[]{"a", "a + b", "a - b + c2 - d", "x+y-z+w-v+u"}) {
+            SyntaxTree ll = new SyntaxTree(gram3.tables.grammar);
+            assertEquals("acc", gram3.tables.llParser().listener(ll).parse(gram3.scan(source)), source);
+            checkSpans(ll, source);
+            for (String type : gram3.types()) {
+                SyntaxTree lr = new SyntaxTree(gram3.tables.grammar);
+                assertEquals("acc", gram3.tables.lrParser(type).listener(lr).parse(gram3.scan(source)), source);
+                assertEquals(nodes(ll), nodes(lr), type + " " + source);
+            }
+        }
+    }
+
+    @Test
+    void lrTypesBuildTheSameTreeOfTokens4() throws IOException {
+        Language gram4 = new Language("gram4.txt", "%token ident [A-Za-z_][A-Za-z0-9_]*", "%token INT_LIT [0-9]+"
+                , "%token FLOAT_LIT [0-9]+\\.[0-9]+", "%ignore [ \\n]+");
+        StringBuilder source = new StringBuilder();
+        for (String line : Files.readAllLines(Paths.get("tokens4.txt"), StandardCharsets.UTF_8)) {
+            int comma = line.lastIndexOf(',', line.length() - 2);
+            if (!line.substring(0, comma).equals(Grammar.END))
+                source.append(line.substring(comma + 1)).append(source.length() % 80 < 70 ? " " : "\n");
+        }
+        List<String> first = null;
+        for (String type : gram4.types()) {
+            SyntaxTree tree = new SyntaxTree(gram4.tables.grammar, 16);
+            assertEquals("acc", gram4.tables.lrParser(type).listener(tree).parse(gram4.scan(source.toString())), type);
+            checkSpans(tree, source.toString());
+            if (first == null)
+                first = nodes(tree);
+            else
+                assertEquals(first, nodes(tree), type);
+        }
+    }
+
+    @Test
+    void rejectedParseHasNoRoot() throws IOException {
+        Language gram3 = new Language("gram3.txt", "%token id [a-z][a-z0-9]*", "%ignore [ ]+");
+        // "a b" leaves one node on the stack of LR, "a +" fails at the end, "+" at the first token
+        for (String source : new String[]{"a b", "a +", "+", ""}) {
+            ArrayList<SyntaxTree> trees = new ArrayList<>();
+            trees.add(new SyntaxTree(gram3.tables.grammar));
+            assertEquals("error", gram3.tables.llParser().listener(trees.get(0)).parse(gram3.scan(source)), source);
+            for (String type : gram3.types()) {
+                SyntaxTree tree = new SyntaxTree(gram3.tables.grammar);
+                assertEquals("error", gram3.tables.lrParser(type).listener(tree).parse(gram3.scan(source)), source);
+                trees.add(tree);
+            }
+            for (SyntaxTree tree : trees) {
+                assertEquals(-1, tree.root(), source);
+                SyntaxTree.Cursor cursor = tree.cursor();
+                assertEquals(-1, cursor.symbol());
+                assertFalse(cursor.gotoFirstChild());
+                assertFalse(cursor.gotoNextSibling());
+                assertFalse(cursor.gotoParent());
+                assertFalse(cursor.next());
+            }
+        }
+        // the same tree accepts again after a rejected parse
+        SyntaxTree tree = new SyntaxTree(gram3.tables.grammar);
+        gram3.tables.llParser().listener(tree).parse(gram3.scan("a b"));
+        gram3.tables.llParser().listener(tree).parse(gram3.scan("a"));
+        assertNotEquals(-1, tree.root());
+    }
+
+    @Test
+    void startSymbolInsideARuleIsNotAccepted() {
+        // "S" in "( S )" is reduced on "$" too, so its reduce can't be accepted unless nothing else is on the stack
+        Grammar grammar = new Grammar(new ArrayList<>(Arrays.asList("S-> A ", "A-> ( S ) ", "A-> x ")));
+        ParseTables tables = new TableGenerator(grammar).generate(false);
+        String[][] cases = {{"( x", "error"}, {"( ( x )", "error"}, {"x x", "error"}, {"x", "acc"}, {"( ( x ) )", "acc"}};
+        for (String[] c : cases) {
+            ArrayList<Token> input = new ArrayList<>();
+            for (String word : (c[0] + " " + Grammar.END).split(" "))
+                input.add(new Token(word));
+            for (String type : LR_TYPES) {
+                SyntaxTree tree = new SyntaxTree(grammar);
+                assertEquals(c[1], tables.lrParser(type).listener(tree).parse(new ListTokenSource(input)), type + " " + c[0]);
+                assertEquals(c[1], tables.glrParser(type).parse(new ListTokenSource(input)), type + " " + c[0]);
+                assertEquals(c[1], tables.incrementalParser(type).parse(new ListTokenSource(input)), type + " " + c[0]);
+                // an accepted tree has every token under its root
+                assertEquals(c[1].equals("acc") ? input.size() - 1 : 0, tree.root() == -1 ? 0 : tree.tokenCount(tree.root()));
+            }
+        }
+    }
+
+    /**
+     * every node by its number: production or terminal, parent, first child, next sibling, token and byte span
+     */
+    private static List<String> nodes(SyntaxTree tree) {
+        ArrayList<String> nodes = new ArrayList<>();
+        for (int node = 0; node < tree.nodeCount(); node++)
+            nodes.add(Arrays.toString(new int[]{tree.production(node), tree.symbol(node), tree.parent(node)
+                    , tree.firstChild(node), tree.nextSibling(node), tree.firstToken(node), tree.tokenCount(node)
+                    , tree.offset(node), tree.length(node)}));
+        return nodes;
+    }
+
+    /**
+     * checks that the root spans every token, a token spans its lexeme in (@param)source
+     * and any other node spans its children
+     */
+    private static void checkSpans(SyntaxTree tree, String source) {
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        int root = tree.root();
+        assertNotEquals(-1, root);
+        assertEquals(-1, tree.parent(root));
+        assertEquals(0, tree.firstToken(root));
+        SyntaxTree.Cursor cursor = tree.cursor();
+        int tokens = 0;
+        do {
+            int node = cursor.node();
+            if (tree.isToken(node)) {
+                assertEquals(tokens++, tree.firstToken(node));
+                assertEquals(1, tree.tokenCount(node));
+                String lexeme = new String(bytes, tree.offset(node), tree.length(node), StandardCharsets.UTF_8);
+                assertFalse(lexeme.trim().isEmpty() || lexeme.contains(" ") || lexeme.contains("\n"), lexeme);
+                continue;
+            }
+            int child = tree.firstChild(node), last = -1, next = tree.firstToken(node);
+            for (; child != -1; last = child, child = tree.nextSibling(child)) {
+                assertEquals(node, tree.parent(child));
+                assertEquals(next, tree.firstToken(child));
+                next += tree.tokenCount(child);
+            }
+            assertEquals(tree.firstToken(node) + tree.tokenCount(node), next);
+            if (last != -1) {
+                int first = tree.firstChild(node);
+                assertEquals(tree.offset(first), tree.offset(node));
+                assertEquals(tree.offset(last) + tree.length(last), tree.offset(node) + tree.length(node));
+            } else {
+                assertEquals(0, tree.length(node));
+            }
+        } while (cursor.next());
+        assertEquals(tokens, tree.tokenCount(root));
+        assertArrayEquals(Arrays.copyOfRange(bytes, tree.offset(root), tree.offset(root) + tree.length(root))
+                , source.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class Language {
+        // tables and lexer of a grammar file with token declarations added to it
+        final ParseTables tables;
+        final Lexer lexer;
+
+        Language(String grammarFile, String... declarations) throws IOException {
+            ArrayList<String> lines = Grammar.readRules(grammarFile);
+            lines.addAll(Arrays.asList(declarations));
+            Grammar grammar = new Grammar(lines);
+            tables = new TableGenerator(grammar).generate(false);
+            lexer = LexerGenerator.compile(lines, grammar, Metrics.NONE);
+        }
+
+        List<String> types() {
+            ArrayList<String> types = new ArrayList<>();
+            for (String type : LR_TYPES)
+                if (!tables.hasConflict(type))
+                    types.add(type);
+            return types;
+        }
+
+        TokenStream scan(String source) {
+            return lexer.scan(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
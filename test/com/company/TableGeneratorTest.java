@@ -0,0 +1,206 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class TableGeneratorTest {
+    // LALR(1) tables made from LR(0) states with propagated lookaheads are LR(1) tables with states of the same core
+    // merged, on a grammar that SLR(1) can't parse
+    // shift/reduce conflicts of an ambiguous expression grammar are resolved by %left, %right, %nonassoc and %prec
+
+    // assignments of C like pointers (dragon book 4.7): after "L" SLR(1) reduces "R-> L" on "=" too, since "="
+    // follows R in "S-> L = R" with "R-> L", but no state that reads an L at the start of S can have "=" after R
+    private static final List<String> POINTERS = Arrays.asList(
+            "P-> S ", "S-> L = R ", "S-> R ", "L-> * R ", "L-> id ", "R-> L ");
+
+    // ambiguous binary operators, a case adds its declarations and rules of "<" and unary "-"
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "S-> E ", "E-> E + E ", "E-> E - E ", "E-> E * E ", "E-> n ");
+    private static final String LESS = "E-> E < E ";
+
+    // declarations and rules, input, value or "error"
+    private static final String[][][] PRECEDENCE_CASES = {
+            // associativity
+            {{"%left + -", "%left *"}, {"8 - 4 - 2"}, {"2"}},
+            {{"%right + -", "%left *"}, {"8 - 4 - 2"}, {"6"}},
+            {{"%left + -", "%left *"}, {"2 * 3 * 4 - 1 - 1"}, {"22"}},
+            // later lines have higher precedence
+            {{"%left + -", "%left *"}, {"2 + 3 * 4"}, {"14"}},
+            {{"%left *", "%left + -"}, {"2 + 3 * 4"}, {"20"}},
+            {{"%left *", "%left + -"}, {"2 * 3 + 4 * 5"}, {"70"}},
+            // %nonassoc: "E < E" before "<" is an error cell, a default reduction mustn't replace it
+            {{"%nonassoc <", "%left + -", "%left *", LESS}, {"1 + 2 < 4"}, {"1"}},
+            {{"%nonassoc <", "%left + -", "%left *", LESS}, {"1 < 2 < 3"}, {"error"}},
+            {{"%left + -", "%left *", "%nonassoc <", LESS}, {"1 < 2 + 3"}, {"4"}},
+            {{"%left + -", "%left *", "%nonassoc <", LESS}, {"2 + 1 < 2 < 3"}, {"error"}},
+            {{"%left + -", "%left *", "%nonassoc <", LESS}, {"4 < 2"}, {"0"}},
+            // unary minus takes precedence of "-" unless %prec gives it another one
+            {{"%left + -", "%left *", "E-> - E "}, {"- 2 + 3"}, {"1"}},
+            {{"%left LOW", "%left + -", "%left *", "E-> - E %prec LOW "}, {"- 2 + 3"}, {"-5"}},
+            {{"%left + -", "%left *", "%nonassoc <", LESS, "E-> - E "}, {"- 2 < 1"}, {"0"}},
+            {{"%left + -", "%left *", "%nonassoc <", "%right UMINUS", LESS, "E-> - E %prec UMINUS "}, {"- 2 < 1"}, {"1"}},
+    };
+
+    @Test
+    void precedenceResolvesConflicts() {
+        for (String[][] c : PRECEDENCE_CASES) {
+            ArrayList<String> lines = new ArrayList<>(EXPRESSIONS);
+            lines.addAll(Arrays.asList(c[0]));
+            ParseTables tables = new TableGenerator(new Grammar(lines)).generate(false);
+            String message = Arrays.toString(c[0]) + " " + c[1][0];
+            for (String type : new String[]{ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1}) {
+                assertTrue(tables.conflicts.get(type).isEmpty(), type + " " + message);
+                assertFalse(tables.resolved.get(type).isEmpty(), type + " " + message);
+                SemanticActions calc = new SemanticActions(tables.grammar)
+                        .onToken("n", (terminal, lexeme) -> Long.parseLong(lexeme.toString()))
+                        .onRule("E-> E + E", (values, first) -> values[first] + values[first + 2])
+                        .onRule("E-> E - E", (values, first) -> values[first] - values[first + 2])
+                        .onRule("E-> E * E", (values, first) -> values[first] * values[first + 2]);
+                if (lines.contains(LESS))
+                    calc.onRule(LESS, (values, first) -> values[first] < values[first + 2] ? 1 : 0);
+                for (String line : c[0])
+                    if (line.startsWith("E-> - E"))
+                        calc.onRule("E-> - E", (values, first) -> -values[first + 1]);
+                String result = tables.lrParser(type).listener(calc).parse(new ListTokenSource(tokens(c[1][0])));
+                assertEquals(c[2][0], result.equals("acc") ? String.valueOf(calc.result()) : result, type + " " + message);
+            }
+        }
+    }
+
+    @Test
+    void nonassocIsAnExplicitError() {
+        ArrayList<String> lines = new ArrayList<>(EXPRESSIONS);
+        lines.addAll(Arrays.asList("%left + -", "%left *", "%nonassoc <", LESS));
+        ParseTables tables = new TableGenerator(new Grammar(lines)).generate(false);
+        String less = "r" + Arrays.asList(tables.grammar.rules).indexOf(LESS);
+        for (String type : new String[]{ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1}) {
+            assertTrue(tables.conflicts.get(type).isEmpty(), type);
+            int errors = 0;
+            for (Conflict conflict : tables.resolved.get(type)) {
+                // "E-> E < E @" against shift of "<" is the only one that is neither shift nor reduce
+                boolean nonassoc = conflict.column.equals("<") && (conflict.conflict1.equals(less)
+                        || conflict.conflict2.equals(less));
+                assertEquals(nonassoc, conflict.resolution.equals(ParseTable.EXPLICIT_ERROR), type + " " + conflict);
+                errors += nonassoc ? 1 : 0;
+            }
+            assertTrue(errors > 0, type);
+        }
+        // a %prec name must be declared
+        ArrayList<String> undeclared = new ArrayList<>(EXPRESSIONS);
+        undeclared.add("E-> - E %prec UMINUS ");
+        assertThrows(IllegalArgumentException.class, () -> new Grammar(undeclared));
+    }
+
+    @Test
+    void lalrHasNoConflictWhereSlrHasOne() {
+        ParseTables tables = new TableGenerator(new Grammar(new ArrayList<>(POINTERS))).generate(false);
+        assertTrue(tables.conflicts.get(ParseTables.LALR1).isEmpty());
+        assertTrue(tables.conflicts.get(ParseTables.LR1).isEmpty());
+        List<Conflict> slr = tables.conflicts.get(ParseTables.SLR1);
+        assertEquals(1, slr.size());
+        assertEquals("=", slr.get(0).column);
+        // shift "=" of "S-> L @= R" and reduce "R-> L @"
+        List<String> actions = Arrays.asList(slr.get(0).conflict1, slr.get(0).conflict2);
+        assertTrue(actions.contains("r5"), actions.toString());
+        assertTrue(actions.get(0).startsWith("s") || actions.get(1).startsWith("s"), actions.toString());
+        for (String input : new String[]{"id = id", "* id = * * id", "* * id", "id"})
+            assertEquals("acc", tables.lrParser(ParseTables.LALR1).parse(new ListTokenSource(tokens(input))), input);
+        for (String input : new String[]{"id = = id", "= id", "id *", "id = id = id"})
+            assertEquals("error", tables.lrParser(ParseTables.LALR1).parse(new ListTokenSource(tokens(input))), input);
+    }
+
+    @Test
+    void lalrIsLr1WithStatesOfTheSameCoreMerged() {
+        // 14 LR(1) states and 10 LR(0) ones like the book
+        checkMerged(POINTERS, 14, 10);
+        // gram3.txt has an epsilon production and a start symbol inside another production, "$" is its only lookahead
+        checkMerged(Arrays.asList("EXPR-> TERM REST ", "TERM-> id ", "REST-> + EXPR ", "REST-> - EXPR ", "REST-> # ")
+                , 8, 8);
+    }
+
+    /**
+     * checks that LALR(1) table of (@param)rules is its LR(1) table with states of the same core merged
+     */
+    private static void checkMerged(List<String> rules, int lr1States, int lalrStates) {
+        TableGenerator generator = new TableGenerator(new Grammar(new ArrayList<>(rules)));
+        generator.generate(false);
+        ArrayList<State> dfa1 = generator.generateDFA(1);
+        ArrayList<State> lalr = generator.generateLALR(generator.generateDFA(0));
+        assertEquals(lr1States, dfa1.size(), rules.toString());
+        assertEquals(lalrStates, lalr.size(), rules.toString());
+        String[][] lr1Table = generator.createTable(dfa1, ParseTables.LR1, new ArrayList<>(), new ArrayList<>());
+        String[][] lalrTable = generator.createTable(lalr, ParseTables.LALR1, new ArrayList<>(), new ArrayList<>());
+
+        // LR(1) state -> LALR(1) state of its core, every LALR(1) state is the core of some LR(1) states
+        HashMap<HashSet<Long>, Integer> stateOfCore = new HashMap<>();
+        for (int s = 0; s < lalr.size(); s++)
+            stateOfCore.put(core(lalr.get(s)), s);
+        int[] merged = new int[dfa1.size()];
+        for (int s = 0; s < dfa1.size(); s++) {
+            Integer state = stateOfCore.get(core(dfa1.get(s)));
+            assertNotNull(state, rules + " state " + s);
+            merged[s] = state;
+        }
+        assertEquals(lalr.size(), Arrays.stream(merged).distinct().count(), rules.toString());
+
+        // rows of merged states with their shifts and GOTOs renumbered, they must agree on every cell
+        String[][] expected = new String[lalr.size()][];
+        for (int s = 0; s < dfa1.size(); s++) {
+            String[] row = new String[lr1Table[s].length];
+            for (int column = 0; column < row.length; column++)
+                row[column] = renumber(lr1Table[s][column], merged);
+            int state = merged[s];
+            if (expected[state] == null) {
+                expected[state] = row;
+            } else {
+                for (int column = 0; column < row.length; column++) {
+                    String other = expected[state][column];
+                    assertTrue(other == null || row[column] == null || other.equals(row[column])
+                            , rules + " state " + s + " column " + column);
+                    if (other == null)
+                        expected[state][column] = row[column];
+                }
+            }
+        }
+        for (int s = 0; s < lalr.size(); s++)
+            assertArrayEquals(expected[s], lalrTable[s], rules + " state " + s);
+    }
+
+    private static HashSet<Long> core(State state) {
+        HashSet<Long> core = new HashSet<>();
+        for (Item item : state.itemSet)
+            core.add(item.core);
+        return core;
+    }
+
+    /**
+     * @return a cell of an LR(1) table with state numbers of its shift or GOTO in LALR(1) numbers
+     */
+    private static String renumber(String cell, int[] merged) {
+        if (cell == null || cell.startsWith("r") || cell.startsWith("acc"))
+            return cell;
+        if (cell.startsWith("s"))
+            return "s" + merged[Integer.parseInt(cell.substring(1))];
+        return String.valueOf(merged[Integer.parseInt(cell)]);
+    }
+
+    private static ArrayList<Token> tokens(String input) {
+        ArrayList<Token> tokens = new ArrayList<>();
+        for (String word : (input + " " + Grammar.END).split(" "))
+            tokens.add(Character.isDigit(word.charAt(0)) ? new Token("n", word) : new Token(word));
+        return tokens;
+    }
+}
@@ -0,0 +1,133 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class TableOptimizerTest {
+    // tables made with and without TableOptimizer accept and reject the same inputs at the same token,
+    // and without bypassUnitReductions they also reduce the same productions in the same order
+
+    private static final String[] TYPES = {ParseTables.LR0, ParseTables.SLR1, ParseTables.LALR1, ParseTables.LR1};
+
+    @Test
+    void gram2EveryTokenReplaced() throws IOException {
+        Fixture fixture = new Fixture("gram2.txt", "tokens2.txt");
+        ArrayList<List<String>> inputs = new ArrayList<>();
+        inputs.add(fixture.types);
+        for (int at = 0; at < fixture.types.size(); at++) {
+            for (int t = 0; t < fixture.grammar.terminalCount; t++)
+                inputs.add(fixture.replaced(at, fixture.grammar.names[t]));
+            inputs.add(fixture.deleted(at));
+        }
+        fixture.check(inputs);
+    }
+
+    @Test
+    void gram4TokensReplacedAndDeleted() throws IOException {
+        Fixture fixture = new Fixture("gram4.txt", "tokens4.txt");
+        ArrayList<List<String>> inputs = new ArrayList<>();
+        inputs.add(fixture.types);
+        for (int at = 0; at < fixture.types.size(); at += fixture.types.size() / 60) {
+            for (String other : new String[]{";", "(", ")", "ident", "INT_LIT", "ELSE", "=", "}", Grammar.END})
+                inputs.add(fixture.replaced(at, other));
+            inputs.add(fixture.deleted(at));
+        }
+        inputs.add(fixture.deleted(fixture.types.size() - 1));
+        fixture.check(inputs);
+        // bypassing must have changed these tables, or the last comparison shows nothing
+        Map<String, Long> bypassed = fixture.bypassedMetrics.getValues();
+        for (String type : fixture.types())
+            assertTrue(bypassed.get("optimize." + type + ".unitBypasses") > 0, type);
+    }
+
+    private static class Fixture {
+        final Grammar grammar;
+        final List<String> types = new ArrayList<>();      // types of tokens of the tokens file, "$" too
+        final ParseTables plain, optimized, bypassed;
+        final Metrics bypassedMetrics = new Metrics();
+
+        Fixture(String grammarFile, String tokensFile) throws IOException {
+            grammar = new Grammar(Grammar.readRules(grammarFile));
+            plain = new TableGenerator(grammar).optimize(false).generate(false);
+            optimized = new TableGenerator(grammar).generate(false);
+            bypassed = new TableGenerator(grammar, ForkJoinPool.commonPool(), bypassedMetrics)
+                    .bypassUnitReductions(true).generate(false);
+            try (FileTokenSource source = new FileTokenSource(tokensFile)) {
+                for (Token token = source.next(); token != null; token = source.next())
+                    types.add(token.token);
+            }
+        }
+
+        List<String> types() {
+            ArrayList<String> types = new ArrayList<>();
+            for (String type : TYPES)
+                if (!plain.hasConflict(type))
+                    types.add(type);
+            assertTrue(!types.isEmpty());
+            return types;
+        }
+
+        List<String> replaced(int at, String type) {
+            ArrayList<String> input = new ArrayList<>(types);
+            input.set(at, type);
+            return input;
+        }
+
+        List<String> deleted(int at) {
+            ArrayList<String> input = new ArrayList<>(types);
+            input.remove(at);
+            return input;
+        }
+
+        void check(List<List<String>> inputs) {
+            int accepted = 0;
+            for (String type : types()) {
+                for (List<String> input : inputs) {
+                    String message = type + " " + (input.size() < 30 ? input.toString() : inputs.indexOf(input) + ". input");
+                    ReduceLog plainLog = new ReduceLog(), optimizedLog = new ReduceLog();
+                    LRParser parser = plain.lrParser(type).listener(plainLog);
+                    String result = parser.parse(new ListTokenSource(tokens(input)));
+                    int failedAt = parser.tokenCount();
+                    accepted += result.equals("acc") ? 1 : 0;
+
+                    parser = optimized.lrParser(type).listener(optimizedLog);
+                    assertEquals(result, parser.parse(new ListTokenSource(tokens(input))), message);
+                    assertEquals(failedAt, parser.tokenCount(), message);
+                    assertEquals(plainLog.productions.size(), optimizedLog.productions.size(), message);
+                    assertTrue(plainLog.productions.equals(optimizedLog.productions), message);
+
+                    // bypassed unit reductions aren't reported, but it never reads a token more before an error
+                    parser = bypassed.lrParser(type);
+                    assertEquals(result, parser.parse(new ListTokenSource(tokens(input))), message);
+                    assertEquals(failedAt, parser.tokenCount(), message);
+                }
+            }
+            assertTrue(accepted > 0 && accepted < inputs.size() * types().size(), accepted + " accepted");
+        }
+
+        private static ArrayList<Token> tokens(List<String> types) {
+            ArrayList<Token> tokens = new ArrayList<>();
+            for (String type : types)
+                tokens.add(new Token(type));
+            return tokens;
+        }
+    }
+
+    private static class ReduceLog implements ParseListener {
+        final ArrayList<Integer> productions = new ArrayList<>();
+
+        @Override
+        public void onReduce(int production, int rhsLength) {
+            productions.add(production);
+        }
+    }
+}
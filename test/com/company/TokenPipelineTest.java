@@ -0,0 +1,103 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class TokenPipelineTest {
+    // whatever a source throws, parser gets the tokens before it and then the failure, it never waits forever
+
+    private static final Grammar GRAMMAR = new Grammar(new ArrayList<>(Arrays.asList("S-> a S ", "S-> b ")));
+
+    @Test
+    void tokensThenEnd() {
+        try (TokenPipeline pipeline = new TokenPipeline(new FailingSource(3, null), GRAMMAR)) {
+            assertEquals(Arrays.asList("a", "a", "a"), read(pipeline, 3));
+            assertEquals(IdTokenSource.END, pipeline.nextId());
+        }
+    }
+
+    @Test
+    void runtimeExceptionIsThrownToParser() {
+        IllegalArgumentException failure = new IllegalArgumentException("bad token");
+        assertSame(failure, failAfter(5, failure));
+    }
+
+    @Test
+    void errorIsThrownToParser() {
+        // more tokens than the ring has room for, so the producer waits for parser before it fails
+        StackOverflowError failure = new StackOverflowError();
+        assertSame(failure, failAfter(40000, failure));
+    }
+
+    @Test
+    void checkedExceptionIsWrapped() {
+        Exception failure = new Exception("closed file");
+        Throwable thrown = failAfter(0, failure);
+        assertTrue(thrown instanceof IllegalStateException);
+        assertSame(failure, thrown.getCause());
+    }
+
+    /**
+     * @return what parser gets after (@param)count tokens of a source that then throws (@param)failure
+     */
+    private static Throwable failAfter(int count, Throwable failure) {
+        return assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (TokenPipeline pipeline = new TokenPipeline(new FailingSource(count, failure), GRAMMAR)) {
+                assertEquals(count, read(pipeline, count).size());
+                return assertThrows(Throwable.class, pipeline::nextId);
+            }
+        });
+    }
+
+    private static ArrayList<String> read(TokenPipeline pipeline, int count) {
+        ArrayList<String> types = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            assertEquals(GRAMMAR.id("a"), pipeline.nextId());
+            types.add(pipeline.token().token);
+        }
+        return types;
+    }
+
+    private static class FailingSource implements TokenSource {
+        // count "a" tokens, then it throws failure or it's finished if failure is null
+        private final Throwable failure;
+        private int count;
+
+        FailingSource(int count, Throwable failure) {
+            this.count = count;
+            this.failure = failure;
+        }
+
+        @Override
+        public Token next() {
+            if (count-- > 0)
+                return new Token("a");
+            if (failure != null)
+                throw FailingSource.<RuntimeException>sneaky(failure);
+            return null;
+        }
+
+        @Override
+        public Token peek() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * throws any Throwable, a checked one too, without declaring it
+         */
+        @SuppressWarnings("unchecked")
+        private static <T extends Throwable> RuntimeException sneaky(Throwable e) throws T {
+            throw (T) e;
+        }
+    }
+}